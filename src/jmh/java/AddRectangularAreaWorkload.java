@@ -0,0 +1,35 @@
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class AddRectangularAreaWorkload implements Workload {
+    // One step of coverage accumulation (both FoVs), cycling through one day of scanning; argument is nside
+    private HealPixDensityMapper h;
+    private SphericalCoordinates[][] directions;
+    private Vector3D[][][] fovs;
+    private int current;
+
+    public void setUp(String argument) throws Exception {
+        h = new HealPixDensityMapper(Integer.parseInt(argument));
+        AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        ScanSteps steps = new ScanSteps();
+        directions = new SphericalCoordinates[24*60][];
+        fovs = new Vector3D[24*60][][];
+        for(int i=0; i<fovs.length; i++) {
+            steps.next();
+            directions[i] = a.calculateDirections(steps.getSolarLongitude(), steps.getNu(), steps.getOmega());
+            fovs[i] = a.calculateFoVs();
+        }
+        current = 0;
+    }
+
+    public void run(Blackhole bh) {
+        current = (current + 1) % fovs.length;
+        h.nextStep(current, directions[current][0], directions[current][1]);
+        h.addRectangularArea(fovs[current][0]);
+        h.addRectangularArea(fovs[current][1]);
+        bh.consume(h);
+    }
+}
@@ -0,0 +1,18 @@
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class CalculateDirectionsWorkload implements Workload {
+    private AttitudeCalculator a;
+    private ScanSteps steps;
+
+    public void setUp(String argument) {
+        a = new AttitudeCalculator(Math.toRadians(45.0));
+        steps = new ScanSteps();
+    }
+
+    public void run(Blackhole bh) {
+        steps.next();
+        bh.consume(a.calculateDirections(steps.getSolarLongitude(), steps.getNu(), steps.getOmega()));
+    }
+}
@@ -0,0 +1,20 @@
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class CalculateFoVsWorkload implements Workload {
+    private AttitudeCalculator a;
+    private ScanSteps steps;
+
+    public void setUp(String argument) {
+        a = new AttitudeCalculator(Math.toRadians(45.0));
+        steps = new ScanSteps();
+    }
+
+    public void run(Blackhole bh) {
+        // calculateFoVs depends on the attitude of the last calculateDirections call, which is part of the measurement
+        steps.next();
+        a.calculateDirections(steps.getSolarLongitude(), steps.getNu(), steps.getOmega());
+        bh.consume(a.calculateFoVs());
+    }
+}
@@ -0,0 +1,38 @@
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class DrawMapWorkload implements Workload {
+    // Renders a 1920 by 1080 frame after one day of scanning, without encoding and writing it; argument is nside,
+    // optionally followed by a projection name as in Projection.forName, e.g. 512:mollweide, and by parallel to color
+    // the frame in row bands on a pool with one thread per processor, e.g. 512:hammer:parallel
+    private HealPixDensityMapper h;
+
+    public void setUp(String argument) throws Exception {
+        String[] parts = argument.split(":");
+        Projection projection = Projection.forName(parts.length > 1 ? parts[1] : "hammer");
+        h = new HealPixDensityMapper(1920, 1080, 1600, 800, projection, Integer.parseInt(parts[0]), ".");
+        if(parts.length > 2 && parts[2].equals("parallel")) {
+            h.setParallelRendering(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+        }
+        AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        h.setEpsilon(a.getEpsilon());
+        ScanSteps steps = new ScanSteps();
+        for(int i=0; i<24*60; i++) {
+            steps.next();
+            SphericalCoordinates[] scs = a.calculateDirections(steps.getSolarLongitude(), steps.getNu(), steps.getOmega());
+            h.nextStep(i/(24.0*60), scs[0], scs[1]);
+            Vector3D[][] fovs = a.calculateFoVs();
+            h.addRectangularArea(fovs[0]);
+            h.addRectangularArea(fovs[1]);
+        }
+    }
+
+    public void run(Blackhole bh) throws Exception {
+        bh.consume(h.renderFrame(h.snapshot(0, null)));
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.Arrays;
+
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class HammerInverseWorkload implements Workload {
+    // Inverse projects the points of a 1920 by 1080 grid over the projection's range, one per invocation,
+    // or with the argument batch one row of 1920 points per invocation through the batch method
+    private HammerProjection p;
+    private double[] xRange;
+    private double[] yRange;
+    private int width;
+    private int height;
+    private int current;
+    private boolean batch;
+    private double[] x;
+    private double[] y;
+    private double[] theta;
+    private double[] phi;
+
+    public void setUp(String argument) {
+        p = new HammerProjection(0, true);
+        xRange = p.getXRange();
+        yRange = p.getYRange();
+        width = 1920;
+        height = 1080;
+        current = 0;
+        batch = "batch".equals(argument);
+        x = new double[width];
+        y = new double[width];
+        theta = new double[width];
+        phi = new double[width];
+        for(int i = 0; i < width; i++) {
+            x[i] = xRange[0] + (xRange[1] - xRange[0]) * i / width;
+        }
+    }
+
+    public void run(Blackhole bh) {
+        if(batch) {
+            current = (current + 1) % height;
+            Arrays.fill(y, yRange[0] + (yRange[1] - yRange[0]) * current / height);
+            p.inverseProjectThetaPhi(x, y, 0, theta, phi, 0, width);
+            bh.consume(theta);
+            return;
+        }
+        current = (current + 1) % (width * height);
+        double x = xRange[0] + (xRange[1] - xRange[0]) * (current % width) / width;
+        double y = yRange[0] + (yRange[1] - yRange[0]) * (current / width) / height;
+        bh.consume(p.inverseProjectThetaPhi(x, y));
+    }
+}
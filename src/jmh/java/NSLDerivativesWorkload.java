@@ -0,0 +1,23 @@
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class NSLDerivativesWorkload implements Workload {
+    private NSLIntegrator ode;
+    private double t;
+    private double[] y;
+    private double[] yDot;
+
+    public void setUp(String argument) {
+        ode = new NSLIntegrator(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400);
+        t = 14*365.25;
+        y = new double[] {Math.PI/2.0, Math.PI/2.0};
+        yDot = new double[2];
+    }
+
+    public void run(Blackhole bh) {
+        t += 1.0/(24*60);
+        ode.computeDerivatives(t, y, yDot);
+        bh.consume(yDot);
+    }
+}
@@ -0,0 +1,32 @@
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import healpix.essentials.Scheme;
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class QueryRectangleWorkload implements Workload {
+    // Queries the FoVs of one day of scanning, argument is nside
+    private HealPixWrapper h;
+    private Vector3D[][] fovs;
+    private int current;
+
+    public void setUp(String argument) throws Exception {
+        h = new HealPixWrapper(Integer.parseInt(argument), Scheme.RING);
+        AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        ScanSteps steps = new ScanSteps();
+        fovs = new Vector3D[2*24*60][];
+        for(int i=0; i<fovs.length; i+=2) {
+            steps.next();
+            a.calculateDirections(steps.getSolarLongitude(), steps.getNu(), steps.getOmega());
+            Vector3D[][] f = a.calculateFoVs();
+            fovs[i] = f[0];
+            fovs[i + 1] = f[1];
+        }
+        current = 0;
+    }
+
+    public void run(Blackhole bh) throws Exception {
+        current = (current + 1) % fovs.length;
+        bh.consume(h.queryRectangle(fovs[current]));
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Random;
+
+import healpix.essentials.Scheme;
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class RenderKernelWorkload implements Workload {
+    // One 3840 by 2160 frame per invocation through a render kernel; the argument is the kernel, hammer (inverse
+    // projection of all screen points) or color (coloring the counts of nside 512 through the pixel lookup), and the
+    // implementation, scalar or vector, e.g. hammer:vector
+    // vector needs the build with -PvectorApi, see build.gradle; it only applies to hammer, since the vector
+    // kernels color pixels with the scalar code
+    private static final int WIDTH = 3840;
+    private static final int HEIGHT = 2160;
+
+    private RenderKernels kernels;
+    private boolean hammer;
+    private double scale;
+    private double[] x;
+    private double[] y;
+    private double[] theta;
+    private double[] phi;
+    private int[] counts;
+    private int[] lookup;
+    private int[] data;
+    private int[] colors;
+
+    public void setUp(String argument) throws Exception {
+        String[] parts = argument.split(":");
+        hammer = parts[0].equals("hammer");
+        if(parts[1].equals("vector")) {
+            if(!hammer) {
+                throw new IllegalArgumentException("The vector kernels color pixels with the scalar code: " + argument);
+            }
+            kernels = RenderKernels.create();
+            if(kernels.getName().equals("scalar")) {
+                throw new IllegalStateException("Vector API kernels not available: build with -PvectorApi");
+            }
+        }
+        else {
+            kernels = new ScalarRenderKernels();
+        }
+
+        HammerProjection p = new HammerProjection(0, true);
+        double[] xRange = p.getXRange();
+        double[] yRange = p.getYRange();
+        scale = yRange[1];
+        x = new double[WIDTH * HEIGHT];
+        y = new double[WIDTH * HEIGHT];
+        for(int j = 0; j < HEIGHT; j++) {
+            for(int i = 0; i < WIDTH; i++) {
+                x[j * WIDTH + i] = xRange[0] + (xRange[1] - xRange[0]) * i / WIDTH;
+                y[j * WIDTH + i] = yRange[1] - (yRange[1] - yRange[0]) * j / HEIGHT;
+            }
+        }
+        theta = new double[WIDTH * HEIGHT];
+        phi = new double[WIDTH * HEIGHT];
+        if(hammer) {
+            return;
+        }
+
+        HealPixWrapper healpix = new HealPixWrapper(512, Scheme.RING);
+        new ScalarRenderKernels().inverseHammer(scale, -1, 0, x, y, 0, theta, phi, 0, x.length);
+        lookup = new int[WIDTH * HEIGHT];
+        for(int k = 0; k < lookup.length; k++) {
+            lookup[k] = Double.isNaN(theta[k]) ? -1 : (int)healpix.ang2pix(theta[k], phi[k]);
+        }
+        Random random = new Random(1);
+        counts = new int[(int)healpix.getNpix()];
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] = random.nextInt(256);
+        }
+        colors = new int[256];
+        for(int c = 0; c < colors.length; c++) {
+            colors[c] = c * 0x010101;
+        }
+        data = new int[WIDTH * HEIGHT];
+    }
+
+    public void run(Blackhole bh) {
+        if(hammer) {
+            kernels.inverseHammer(scale, -1, 0, x, y, 0, theta, phi, 0, x.length);
+            bh.consume(theta);
+            return;
+        }
+        kernels.colorPixels(counts, lookup, data, 0, data.length, colors);
+        bh.consume(data);
+    }
+}
@@ -0,0 +1,31 @@
+public class ScanSteps {
+    // Cheap approximation of the scanning law for benchmarks: nu, omega and the solar longitude advance
+    // linearly at their nominal rates, in steps of one minute
+    private double solarLongitude;
+    private double nu;
+    private double omega;
+
+    public ScanSteps() {
+        solarLongitude = 0;
+        nu = Math.PI/2.0;
+        omega = Math.PI/2.0;
+    }
+
+    public void next() {
+        solarLongitude += Math.toRadians(360.0/365.25) / (24*60);
+        nu += Math.toRadians(360.0/63) / (24*60);
+        omega += Math.toRadians(60.0/3600.0) * 60;
+    }
+
+    public double getSolarLongitude() {
+        return solarLongitude;
+    }
+
+    public double getNu() {
+        return nu;
+    }
+
+    public double getOmega() {
+        return omega;
+    }
+}
@@ -0,0 +1,46 @@
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class SolarLongitudeWorkload implements Workload {
+    // Derivative of the solar longitude as needed by NSLIntegrator, with the argument selecting the implementation:
+    // closed (apparentLongitude), fast (solarLongitudeRate), table (interpolated) or batch (one minute of 1 second steps)
+    // t cycles through the 5 year mission, so that in table mode it never leaves the table, however many invocations
+    // warmup and measurement take
+    private static final double START = 14*365.25;
+    private static final double SPAN = 5*365.25 - 1;
+
+    private Sun sun;
+    private String mode;
+    private double t;
+    private double[] ts;
+    private double[] rates;
+
+    public void setUp(String argument) {
+        sun = new Sun();
+        mode = argument;
+        t = START;
+        if(mode.equals("table")) {
+            sun.enableTable(START, START + 5*365.25, 0.25);
+        }
+        ts = new double[60];
+        rates = new double[60];
+    }
+
+    public void run(Blackhole bh) {
+        t = START + (t - START + 1.0/(24*60)) % SPAN;
+        if(mode.equals("closed")) {
+            bh.consume(sun.apparentLongitude(t)[2]);
+            return;
+        }
+        if(mode.equals("batch")) {
+            for(int i = 0; i < ts.length; i++) {
+                ts[i] = t + i/86400.0;
+            }
+            sun.solarLongitudeRate(ts, rates);
+            bh.consume(rates);
+            return;
+        }
+        bh.consume(sun.solarLongitudeRate(t));
+    }
+}
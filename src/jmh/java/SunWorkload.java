@@ -0,0 +1,18 @@
+import org.openjdk.jmh.infra.Blackhole;
+import benchmark.Workload;
+
+
+public class SunWorkload implements Workload {
+    private Sun sun;
+    private double t;
+
+    public void setUp(String argument) {
+        sun = new Sun();
+        t = 14*365.25;
+    }
+
+    public void run(Blackhole bh) {
+        t += 1.0/(24*60);
+        bh.consume(sun.apparentLongitude(t));
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+    // Run with: gradle jmh (adds the gc profiler for allocation per operation)
+    // Each workload runs in its own fork, so the call through the Workload interface stays monomorphic
+    // The Vector API kernels are compared with gradle -PvectorApi jmhVector, see build.gradle
+    @Param({
+            "SunWorkload",
+            "SolarLongitudeWorkload:closed",
+            "SolarLongitudeWorkload:fast",
+            "SolarLongitudeWorkload:table",
+            "SolarLongitudeWorkload:batch",
+            "NSLDerivativesWorkload",
+            "CalculateDirectionsWorkload",
+            "CalculateFoVsWorkload",
+            "QueryRectangleWorkload:512",
+            "QueryRectangleWorkload:2048",
+            "QueryRectangleWorkload:4096",
+            "HammerInverseWorkload",
+            "HammerInverseWorkload:batch",
+            "RenderKernelWorkload:hammer:scalar",
+            "RenderKernelWorkload:color:scalar",
+            "AddRectangularAreaWorkload:512",
+            "DrawMapWorkload:512",
+            "DrawMapWorkload:512:hammer:parallel",
+            "DrawMapWorkload:512:mollweide",
+            "DrawMapWorkload:512:aitoff",
+            "DrawMapWorkload:512:lambert",
+            "DrawMapWorkload:512:orthographic"
+    })
+    public String workload;
+
+    private Workload w;
+
+    @Setup
+    public void setUp() throws Exception {
+        String[] parts = workload.split(":", 2);
+        w = (Workload)Class.forName(parts[0]).getDeclaredConstructor().newInstance();
+        w.setUp(parts.length > 1 ? parts[1] : null);
+    }
+
+    @Benchmark
+    public void run(Blackhole bh) throws Exception {
+        w.run(bh);
+    }
+}
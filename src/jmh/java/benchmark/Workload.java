@@ -0,0 +1,17 @@
+package benchmark;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+
+public interface Workload {
+    // A hot path of the scanning law code, wrapped for HotPathBenchmark
+    // JMH does not accept benchmarks in the default package, where the simulation classes live, so the benchmark
+    // lives in this package and loads the workloads, which are in the default package, by name
+
+    // Prepares the workload; argument is the part of the workload name after ':', or null
+    void setUp(String argument) throws Exception;
+
+    // A single invocation of the measured operation; results go into bh, so that primitive results are
+    // consumed without boxing and the gc profiler only shows allocations of the measured code
+    void run(Blackhole bh) throws Exception;
+}
@@ -0,0 +1,133 @@
+public class AitoffProjection implements Projection {
+    // Aitoff projection of the whole sky onto an ellipse of 2PI by PI; neither equal-area nor conformal,
+    // but with less shear near the edges than Hammer
+    // The inverse has no closed form and is solved with two-dimensional Newton iteration; it is only needed
+    // once per screen pixel, when the screen to HealPix lookup is built
+    private static final int MAX_ITERATIONS = 50;
+
+    private double centerTheta;
+    private int longitudeSign;
+    private double[] xRange;
+    private double[] yRange;
+
+    // centerLongitude is supplied in degrees
+    public AitoffProjection(double centerLongitude) {
+        this(centerLongitude, false);
+    }
+
+    public AitoffProjection(double centerLongitude, boolean invertLongitude) {
+        this.centerTheta = Math.toRadians(centerLongitude);
+        this.longitudeSign = invertLongitude ? -1 : 1;
+        this.xRange = new double[] {-Math.PI, Math.PI};
+        this.yRange = new double[] {-Math.PI/2.0, Math.PI/2.0};
+    }
+
+    public double getCenterLongitude() {
+        return Math.toDegrees(centerTheta);
+    }
+
+    private static double inverseSinc(double c, double s2) {
+        // alpha / sin(alpha) for cos(alpha) = c and sin(alpha)^2 = s2
+        return s2 < 1e-24 ? 1.0 : Math.acos(c) / Math.sqrt(s2);
+    }
+
+    private void project(double theta, double phi, double[] x, int xIndex, double[] y, int yIndex) {
+        double a = 0.5 * longitudeSign * Projection.reduceTheta(theta - centerTheta);
+        double latitude = Math.PI/2.0 - phi;
+        double c = Math.cos(latitude) * Math.cos(a);
+        double k = inverseSinc(c, 1 - c * c);
+        x[xIndex] = 2 * k * Math.cos(latitude) * Math.sin(a);
+        y[yIndex] = k * Math.sin(latitude);
+    }
+
+    private void inverseProject(double x, double y, double[] theta, int thetaIndex, double[] phi, int phiIndex) {
+        if(x * x / (Math.PI * Math.PI) + 4 * y * y / (Math.PI * Math.PI) > 1.0) {
+            theta[thetaIndex] = Double.NaN;
+            phi[phiIndex] = Double.NaN;
+            return;
+        }
+        // Near the center the projection is close to the identity, which gives the start value;
+        // about 4 iterations are needed on average
+        double longitude = x;
+        double latitude = y;
+        for(int i = 0; i < MAX_ITERATIONS; i++) {
+            double a = 0.5 * longitude;
+            double sa = Math.sin(a);
+            double ca = Math.cos(a);
+            double sl = Math.sin(latitude);
+            double cl = Math.cos(latitude);
+            double c = cl * ca;
+            double s2 = 1 - c * c;
+            double k = inverseSinc(c, s2);
+            // Derivative of k with respect to c, with limit -1/3 at the center
+            double kc = s2 < 1e-12 ? -1.0/3.0 : (c * k - 1) / s2;
+            double kLongitude = kc * (-0.5 * cl * sa);
+            double kLatitude = kc * (-sl * ca);
+
+            double fx = 2 * k * cl * sa - x;
+            double fy = k * sl - y;
+            double xLongitude = 2 * cl * (kLongitude * sa + 0.5 * k * ca);
+            double xLatitude = 2 * sa * (kLatitude * cl - k * sl);
+            double yLongitude = kLongitude * sl;
+            double yLatitude = kLatitude * sl + k * cl;
+            double det = xLongitude * yLatitude - xLatitude * yLongitude;
+            if(det == 0) {
+                break;
+            }
+            double dLongitude = (fx * yLatitude - fy * xLatitude) / det;
+            double dLatitude = (fy * xLongitude - fx * yLongitude) / det;
+            longitude = Math.max(-Math.PI, Math.min(Math.PI, longitude - dLongitude));
+            latitude = Math.max(-Math.PI/2.0, Math.min(Math.PI/2.0, latitude - dLatitude));
+            if(Math.abs(dLongitude) < 1e-12 && Math.abs(dLatitude) < 1e-12) {
+                break;
+            }
+        }
+        theta[thetaIndex] = longitudeSign * longitude + centerTheta;
+        phi[phiIndex] = Math.PI/2.0 - latitude;
+    }
+
+    // Project using longitude and latitude in degrees
+    public double[] projectLongLat(double longitude, double latitude) {
+        return projectThetaPhi(Math.toRadians(longitude), Math.toRadians(90.0 - latitude));
+    }
+
+    // Project using theta (angle around equator) and phi (angle from north pole) in radians
+    public double[] projectThetaPhi(double theta, double phi) {
+        double[] res = new double[2];
+        project(theta, phi, res, 0, res, 1);
+        return res;
+    }
+
+    public void projectThetaPhi(double[] theta, double[] phi, int inOffset, double[] x, double[] y, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            project(theta[inOffset + i], phi[inOffset + i], x, outOffset + i, y, outOffset + i);
+        }
+    }
+
+    // Inverse project to longitude and latitude in degrees
+    public double[] inverseProjectLongLat(double x, double y) {
+        double[] thetaPhi = inverseProjectThetaPhi(x, y);
+        return new double[] {Math.toDegrees(thetaPhi[0]), Math.toDegrees(Math.PI/2.0 - thetaPhi[1])};
+    }
+
+    // Inverse project to theta and phi in radians
+    public double[] inverseProjectThetaPhi(double x, double y) {
+        double[] res = new double[2];
+        inverseProject(x, y, res, 0, res, 1);
+        return res;
+    }
+
+    public void inverseProjectThetaPhi(double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            inverseProject(x[inOffset + i], y[inOffset + i], theta, outOffset + i, phi, outOffset + i);
+        }
+    }
+
+    public double[] getXRange() {
+        return xRange.clone();
+    }
+
+    public double[] getYRange() {
+        return yRange.clone();
+    }
+}
@@ -0,0 +1,95 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+
+public class AttitudeBuffer {
+    // Ring buffer of attitude samples, stored as primitive doubles
+    // Each sample holds t, solar longitude, nu, omega and theta/phi of the Sun direction, precession axis and scan direction
+    // When full, the oldest sample is overwritten; a buffer sized to the number of steps keeps the full history
+    public static final int T = 0;
+    public static final int SOLAR_LONGITUDE = 1;
+    public static final int NU = 2;
+    public static final int OMEGA = 3;
+    public static final int SUN_THETA = 4;
+    public static final int SUN_PHI = 5;
+    public static final int PRECESSION_THETA = 6;
+    public static final int PRECESSION_PHI = 7;
+    public static final int SCAN_THETA = 8;
+    public static final int SCAN_PHI = 9;
+    public static final int STRIDE = 10;
+
+    private DoubleBuffer data;
+    private int capacity;
+    private int next;
+    private long count;
+
+    public AttitudeBuffer(int capacity) {
+        this(capacity, false);
+    }
+
+    public AttitudeBuffer(int capacity, boolean offHeap) {
+        // offHeap stores the samples in a direct buffer, outside of the Java heap
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        if(offHeap) {
+            data = ByteBuffer.allocateDirect(capacity * STRIDE * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        else {
+            data = DoubleBuffer.allocate(capacity * STRIDE);
+        }
+        clear();
+    }
+
+    public void clear() {
+        next = 0;
+        count = 0;
+    }
+
+    public void add(double t, double solarLongitude, double nu, double omega, double sunTheta, double sunPhi,
+                    double precessionTheta, double precessionPhi, double scanTheta, double scanPhi) {
+        int offset = next * STRIDE;
+        data.put(offset + T, t);
+        data.put(offset + SOLAR_LONGITUDE, solarLongitude);
+        data.put(offset + NU, nu);
+        data.put(offset + OMEGA, omega);
+        data.put(offset + SUN_THETA, sunTheta);
+        data.put(offset + SUN_PHI, sunPhi);
+        data.put(offset + PRECESSION_THETA, precessionTheta);
+        data.put(offset + PRECESSION_PHI, precessionPhi);
+        data.put(offset + SCAN_THETA, scanTheta);
+        data.put(offset + SCAN_PHI, scanPhi);
+        next = (next + 1) % capacity;
+        count += 1;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Number of samples currently held
+    public int size() {
+        return (int)Math.min(count, capacity);
+    }
+
+    // Total number of samples added since the last clear
+    public long getCount() {
+        return count;
+    }
+
+    // Field of the i-th held sample, with 0 the oldest and size() - 1 the most recent
+    public double get(int i, int field) {
+        if(i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Sample " + i + " not in buffer of size " + size());
+        }
+        int index = (next - size() + i + capacity) % capacity;
+        return data.get(index * STRIDE + field);
+    }
+
+    // Field of the most recent sample
+    public double getLatest(int field) {
+        return get(size() - 1, field);
+    }
+}
@@ -1,6 +1,3 @@
-import org.apache.commons.math3.complex.Quaternion;
-import org.apache.commons.math3.geometry.euclidean.threed.Rotation;
-import org.apache.commons.math3.geometry.euclidean.threed.RotationConvention;
 import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
@@ -11,9 +8,21 @@ public class AttitudeCalculator {
     private double gamma;
     private double fovAlong;
     private double fovAcross;
-    private Vector3D currentSunVector;
-    private Vector3D currentPrecessionVector;
-    private Vector3D currentScanDirectionVector;
+
+    // Buffers for the primitive attitude engine; quaternions are stored as {q0, q1, q2, q3}, vectors as {x, y, z}
+    // Reused for every call, so an instance must not be shared between threads
+    private final double[] attitude = new double[4];
+    private final double[] qa = new double[4];
+    private final double[] qb = new double[4];
+    private final double[] qc = new double[4];
+    private final double[] sunVector = new double[3];
+    private final double[] precessionVector = new double[3];
+    private final double[] scanDirectionVector = new double[3];
+    private final double[] fovDirection = new double[3];
+    private final double[] fovEdge = new double[3];
+    private final double[] fovAxis = new double[3];
+    private final double[] fovCorners = new double[24];
+    private final double[] instrumentFoVCorners = new double[24];
 
     public AttitudeCalculator(double solarAspectAngle, double epsilon) {
         // Gaia attitude calculation
@@ -26,6 +35,10 @@ public class AttitudeCalculator {
         this.gamma = Math.toRadians(106.5);   // Angle between telescope arms
         this.fovAlong = Math.toRadians(0.74);  // Size of the FoV of a single telescope, in scan direction
         this.fovAcross = Math.toRadians(0.66); // Size of the FoV of a single telescope, perpendicular to scan direction
+
+        // The FoV corners are fixed in the instrument frame, where the spin axis is the 3rd axis
+        // and the scan direction the 1st; each step only has to rotate them with the attitude
+        calculateFoVs(new double[] {0, 0, 1}, new double[] {1, 0, 0}, instrumentFoVCorners);
     }
 
     public AttitudeCalculator(double solarAspectAngle) {
@@ -41,40 +54,132 @@ public class AttitudeCalculator {
         return epsilon;
     }
 
-    private Quaternion quaternionFromAngleAndVector(double angle, Vector3D vector) {
+    private static void quaternionFromAngleAndAxis(double angle, int axis, double[] q) {
+        // Quaternion for a rotation around the x (0), y (1) or z (2) axis
         // Invert the angle to counteract the strange rotation convention of Apache commons math
-        return new Quaternion(Math.cos(-angle/2.0), vector.scalarMultiply(Math.sin(-angle/2.0)).toArray());
+        q[0] = Math.cos(-angle/2.0);
+        q[1] = 0;
+        q[2] = 0;
+        q[3] = 0;
+        q[axis + 1] = Math.sin(-angle/2.0);
     }
 
-    public SphericalCoordinates[] calculateDirections(double solarLongitude, double nu, double omega) {
+    private static void multiply(double[] a, double[] b, double[] res) {
+        // Hamilton product a * b; res must not be a or b
+        res[0] = a[0] * b[0] - a[1] * b[1] - a[2] * b[2] - a[3] * b[3];
+        res[1] = a[0] * b[1] + a[1] * b[0] + a[2] * b[3] - a[3] * b[2];
+        res[2] = a[0] * b[2] - a[1] * b[3] + a[2] * b[0] + a[3] * b[1];
+        res[3] = a[0] * b[3] + a[1] * b[2] - a[2] * b[1] + a[3] * b[0];
+    }
+
+    private static void normalize(double[] q) {
+        double inv = 1.0 / Math.sqrt(q[0] * q[0] + q[1] * q[1] + q[2] * q[2] + q[3] * q[3]);
+        q[0] *= inv;
+        q[1] *= inv;
+        q[2] *= inv;
+        q[3] *= inv;
+    }
+
+    private static void applyTo(double q0, double q1, double q2, double q3, double x, double y, double z, double[] res, int offset) {
+        // Same convention as Apache commons math Rotation.applyTo
+        double s = q1 * x + q2 * y + q3 * z;
+        res[offset] = 2 * (q0 * (x * q0 - (q2 * z - q3 * y)) + s * q1) - x;
+        res[offset + 1] = 2 * (q0 * (y * q0 - (q3 * x - q1 * z)) + s * q2) - y;
+        res[offset + 2] = 2 * (q0 * (z * q0 - (q1 * y - q2 * x)) + s * q3) - z;
+    }
+
+    private static void rotate(double[] axis, double angle, double[] v, int vOffset, double[] res, int offset) {
+        // Rotates v by angle around axis, like an Apache commons math Rotation with RotationConvention.VECTOR_OPERATOR
+        double norm = Math.sqrt(axis[0] * axis[0] + axis[1] * axis[1] + axis[2] * axis[2]);
+        double coeff = Math.sin(-0.5 * angle) / norm;
+        applyTo(Math.cos(-0.5 * angle), coeff * axis[0], coeff * axis[1], coeff * axis[2],
+                v[vOffset], v[vOffset + 1], v[vOffset + 2], res, offset);
+    }
+
+    private static void cross(double[] a, double[] b, double[] res) {
+        res[0] = a[1] * b[2] - a[2] * b[1];
+        res[1] = a[2] * b[0] - a[0] * b[2];
+        res[2] = a[0] * b[1] - a[1] * b[0];
+    }
+
+    public void calculateDirections(double solarLongitude, double nu, double omega, double[] sun, double[] spinAxis, double[] scanDirection) {
+        // Primitive version of calculateDirections: writes the unit vectors of the Sun direction, the spin (precession) axis
+        // and the scan direction into the supplied arrays, without allocating
+
         // Rotate to the ecliptic plane
-        Quaternion q0 = quaternionFromAngleAndVector(epsilon, Vector3D.PLUS_I);
+        quaternionFromAngleAndAxis(epsilon, 0, qa);
         // Rotate line of sight towards current Sun
-        Quaternion q1 = quaternionFromAngleAndVector(solarLongitude, Vector3D.PLUS_K);
+        quaternionFromAngleAndAxis(solarLongitude, 2, qb);
+        multiply(qb, qa, qc);
+        // Sun direction is the 1st axis of the frame after these two rotations
+        System.arraycopy(qc, 0, qa, 0, 4);
+        normalize(qa);
+        applyTo(qa[0], qa[1], qa[2], qa[3], 1, 0, 0, sun, 0);
+
         // Rotate precession axis around the Sun to its current position
-        Quaternion q2 = quaternionFromAngleAndVector(nu - Math.PI/2.0, Vector3D.PLUS_I);
+        quaternionFromAngleAndAxis(nu - Math.PI/2.0, 0, qa);
+        multiply(qa, qc, qb);
         // Rotate precession axis to the correct angle away from the Sun
-        Quaternion q3 = quaternionFromAngleAndVector(Math.PI/2.0 - solarAspectAngle, Vector3D.PLUS_J);
+        quaternionFromAngleAndAxis(Math.PI/2.0 - solarAspectAngle, 1, qa);
+        multiply(qa, qb, qc);
         // Rotate the line of sight around the spin axis to its current position
-        Quaternion q4 = quaternionFromAngleAndVector(omega, Vector3D.PLUS_K);
+        quaternionFromAngleAndAxis(omega, 2, qa);
+        multiply(qa, qc, attitude);
+        normalize(attitude);
+
+        applyTo(attitude[0], attitude[1], attitude[2], attitude[3], 0, 0, 1, spinAxis, 0);     // spin axis is 3rd axis of instrument frame
+        applyTo(attitude[0], attitude[1], attitude[2], attitude[3], 1, 0, 0, scanDirection, 0); // central direction for the two lines of sight is the 1st axis of the instrument frame
+    }
+
+    public void getAttitudeQuaternion(double[] q) {
+        // Normalized attitude quaternion {q0, q1, q2, q3} of the last calculateDirections call
+        System.arraycopy(attitude, 0, q, 0, 4);
+    }
+
+    public void calculateFoVs(double[] corners) {
+        // Corners of both FoVs for the attitude of the last calculateDirections call, in the layout of
+        // calculateFoVs(spinAxis, scanDirection, corners), obtained by rotating the precomputed instrument frame corners
+        transformToSky(instrumentFoVCorners, corners);
+    }
+
+    public void transformToSky(double[] instrumentVectors, double[] res) {
+        // Rotates consecutive vectors {x, y, z, x, y, z, ...} from the instrument frame to the sky,
+        // using the attitude of the last calculateDirections call
+        for(int k = 0; k < instrumentVectors.length; k += 3) {
+            applyTo(attitude[0], attitude[1], attitude[2], attitude[3],
+                    instrumentVectors[k], instrumentVectors[k + 1], instrumentVectors[k + 2], res, k);
+        }
+    }
+
+    public void calculateFoVs(double[] spinAxis, double[] scanDirection, double[] corners) {
+        // Primitive version of calculateFoVs: writes the four corners of the leading and following FoV
+        // as eight consecutive unit vectors (24 values) into corners, without allocating
+        rotate(spinAxis, gamma/2.0, scanDirection, 0, fovDirection, 0);
+        createFieldOfView(spinAxis, fovDirection, corners, 0);
+        rotate(spinAxis, -gamma/2.0, scanDirection, 0, fovDirection, 0);
+        createFieldOfView(spinAxis, fovDirection, corners, 12);
+    }
 
-        // Calculate combined rotation
-        Quaternion q01 = q1.multiply(q0);
-        Quaternion q12 = q2.multiply(q01);
-        Quaternion q123 = q3.multiply(q12);
-        Quaternion q1234 = q4.multiply(q123);
+    private void createFieldOfView(double[] spinAxis, double[] direction, double[] corners, int offset) {
+        // Build FoV for scanDirection
+        rotate(spinAxis, fovAlong/2.0, direction, 0, fovEdge, 0);
+        cross(fovEdge, spinAxis, fovAxis);
+        rotate(fovAxis, fovAcross/2.0, fovEdge, 0, corners, offset);
+        rotate(fovAxis, -fovAcross/2.0, fovEdge, 0, corners, offset + 3);
+
+        rotate(spinAxis, -fovAlong/2.0, direction, 0, fovEdge, 0);
+        cross(fovEdge, spinAxis, fovAxis);
+        rotate(fovAxis, -fovAcross/2.0, fovEdge, 0, corners, offset + 6);
+        rotate(fovAxis, fovAcross/2.0, fovEdge, 0, corners, offset + 9);
+    }
 
-        // Build rotation
-        Rotation r0 = new Rotation(q01.getQ0(), q01.getQ1(), q01.getQ2(), q01.getQ3(), true);
-        Rotation r = new Rotation(q1234.getQ0(), q1234.getQ1(), q1234.getQ2(), q1234.getQ3(), true);
-        currentSunVector = r0.applyTo(Vector3D.PLUS_I);
-        currentPrecessionVector = r.applyTo(Vector3D.PLUS_K);    // spin axis is 3rd axis of instrument frame
-        currentScanDirectionVector = r.applyTo(Vector3D.PLUS_I); // central direction for the two lines of sight is the 1st axis of the instrument frame
+    public SphericalCoordinates[] calculateDirections(double solarLongitude, double nu, double omega) {
+        calculateDirections(solarLongitude, nu, omega, sunVector, precessionVector, scanDirectionVector);
 
         // Convert to spherical coordinates
-        SphericalCoordinates sc0 = new SphericalCoordinates(currentSunVector);
-        SphericalCoordinates sc1 = new SphericalCoordinates(currentPrecessionVector);
-        SphericalCoordinates sc2 = new SphericalCoordinates(currentScanDirectionVector);
+        SphericalCoordinates sc0 = new SphericalCoordinates(new Vector3D(sunVector));
+        SphericalCoordinates sc1 = new SphericalCoordinates(new Vector3D(precessionVector));
+        SphericalCoordinates sc2 = new SphericalCoordinates(new Vector3D(scanDirectionVector));
 
         return new SphericalCoordinates[] {sc0, sc1, sc2};
     }
@@ -83,35 +188,14 @@ public class AttitudeCalculator {
         // Calculates the fields of view of both telescopes
         Vector3D[][] fovs = new Vector3D[2][4];
 
-        Rotation r1 = new Rotation(currentPrecessionVector, gamma/2.0, RotationConvention.VECTOR_OPERATOR);
-        Rotation r2 = new Rotation(currentPrecessionVector, -gamma/2.0, RotationConvention.VECTOR_OPERATOR);
-        Vector3D leading = r1.applyTo(currentScanDirectionVector);
-        Vector3D following = r2.applyTo(currentScanDirectionVector);
-
-        fovs[0] = createFieldOfView(currentPrecessionVector, leading);
-        fovs[1] = createFieldOfView(currentPrecessionVector, following);
+        calculateFoVs(fovCorners);
+        for(int i=0; i<2; i++) {
+            for(int j=0; j<4; j++) {
+                int k = 3 * (4 * i + j);
+                fovs[i][j] = new Vector3D(fovCorners[k], fovCorners[k + 1], fovCorners[k + 2]);
+            }
+        }
 
         return fovs;
     }
-
-    private Vector3D[] createFieldOfView(Vector3D precessionAxisVector, Vector3D scanDirectionVector) {
-        // Build FoV for scanDirection
-        Rotation r1 = new Rotation(precessionAxisVector, fovAlong/2.0, RotationConvention.VECTOR_OPERATOR);
-        Vector3D tempv1 = r1.applyTo(scanDirectionVector);
-        Vector3D tempAxis1 = tempv1.crossProduct(precessionAxisVector);
-        Rotation r11 = new Rotation(tempAxis1, fovAcross/2.0, RotationConvention.VECTOR_OPERATOR);
-        Rotation r12 = new Rotation(tempAxis1, -fovAcross/2.0, RotationConvention.VECTOR_OPERATOR);
-        Vector3D p11 = r11.applyTo(tempv1);
-        Vector3D p12 = r12.applyTo(tempv1);
-
-        Rotation r2 = new Rotation(precessionAxisVector, -fovAlong/2.0, RotationConvention.VECTOR_OPERATOR);
-        Vector3D tempv2 = r2.applyTo(scanDirectionVector);
-        Vector3D tempAxis2 = tempv2.crossProduct(precessionAxisVector);
-        Rotation r21 = new Rotation(tempAxis2, -fovAcross/2.0, RotationConvention.VECTOR_OPERATOR);
-        Rotation r22 = new Rotation(tempAxis2, fovAcross/2.0, RotationConvention.VECTOR_OPERATOR);
-        Vector3D p21 = r21.applyTo(tempv2);
-        Vector3D p22 = r22.applyTo(tempv2);
-
-        return new Vector3D[] {p11, p12, p21, p22};
-    }
 }
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+public class AttitudeFileReader implements AutoCloseable {
+    // Random access to a file written by AttitudeFileWriter
+    // Every column is memory mapped separately, so values are read straight from the mapped file
+    private FileChannel channel;
+    private long rows;
+    private DoubleBuffer[] columns;
+
+    public AttitudeFileReader(String path) throws IOException {
+        channel = FileChannel.open(Paths.get(FilePaths.expand(path)), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(AttitudeFileWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+        if(header.getInt() != AttitudeFileWriter.MAGIC || header.getInt() != AttitudeFileWriter.VERSION) {
+            throw new IOException("Not an attitude file: " + path);
+        }
+        int ncolumns = header.getInt();
+        header.getInt();
+        long capacity = header.getLong();
+        rows = header.getLong();
+
+        columns = new DoubleBuffer[ncolumns];
+        for(int c = 0; c < ncolumns; c++) {
+            columns[c] = channel.map(FileChannel.MapMode.READ_ONLY, AttitudeFileWriter.HEADER_SIZE + 8 * c * capacity, 8 * rows)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public double getT(int i) {
+        return columns[AttitudeFileWriter.T].get(i);
+    }
+
+    public double getNu(int i) {
+        return columns[AttitudeFileWriter.NU].get(i);
+    }
+
+    public double getOmega(int i) {
+        return columns[AttitudeFileWriter.OMEGA].get(i);
+    }
+
+    public double getSolarLongitude(int i) {
+        return columns[AttitudeFileWriter.SOLAR_LONGITUDE].get(i);
+    }
+
+    public void getQuaternion(int i, double[] q) {
+        q[0] = columns[AttitudeFileWriter.Q0].get(i);
+        q[1] = columns[AttitudeFileWriter.Q1].get(i);
+        q[2] = columns[AttitudeFileWriter.Q2].get(i);
+        q[3] = columns[AttitudeFileWriter.Q3].get(i);
+    }
+
+    public int indexOf(double t) {
+        // Index of the last step at or before t, or -1 if t is before the first step
+        DoubleBuffer ts = columns[AttitudeFileWriter.T];
+        int low = 0;
+        int high = (int)rows - 1;
+        if(rows == 0 || t < ts.get(0)) {
+            return -1;
+        }
+        while(low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if(ts.get(mid) <= t) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+public class AttitudeFileWriter implements AutoCloseable {
+    // Streams the attitude at every step to a columnar binary file, for use by other tools through AttitudeFileReader
+    // Layout (little endian): a header of HEADER_SIZE bytes
+    //   int magic, int version, int number of columns, int reserved, long capacity, long number of rows
+    // followed by one column of capacity doubles for each of t, nu, omega, solar longitude and the attitude quaternion q0..q3
+    // Rows are buffered per column and written in blocks
+    static final int MAGIC = 0x4E534C41;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int T = 0;
+    static final int NU = 1;
+    static final int OMEGA = 2;
+    static final int SOLAR_LONGITUDE = 3;
+    static final int Q0 = 4;
+    static final int Q1 = 5;
+    static final int Q2 = 6;
+    static final int Q3 = 7;
+    static final int COLUMNS = 8;
+    private static final int BLOCK_ROWS = 8192;
+
+    private FileChannel channel;
+    private long capacity;
+    private long rows;
+    private ByteBuffer[] blocks;
+    private long blockStart;
+
+    public AttitudeFileWriter(String path, long capacity) throws IOException {
+        // capacity is the maximum number of rows, e.g. the number of steps of the mission
+        this.capacity = capacity;
+        channel = FileChannel.open(Paths.get(FilePaths.expand(path)), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        allocateBlocks();
+        rows = 0;
+        blockStart = 0;
+        writeHeader();
+    }
+
+    private AttitudeFileWriter(FileChannel channel, long capacity, long rows) throws IOException {
+        this.channel = channel;
+        this.capacity = capacity;
+        allocateBlocks();
+        this.rows = rows;
+        blockStart = rows;
+        writeHeader();
+    }
+
+    public static AttitudeFileWriter append(String path, long rows) throws IOException {
+        // Continue an existing attitude file after its first rows rows, e.g. when resuming from a checkpoint;
+        // later rows, written after the checkpoint, are overwritten
+        FileChannel channel = FileChannel.open(Paths.get(FilePaths.expand(path)), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        long capacity = header.getLong(16);
+        if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getLong(24) < rows) {
+            channel.close();
+            throw new IOException("Cannot continue attitude file " + path + " after row " + rows);
+        }
+        return new AttitudeFileWriter(channel, capacity, rows);
+    }
+
+    private void allocateBlocks() {
+        blocks = new ByteBuffer[COLUMNS];
+        for(int c = 0; c < COLUMNS; c++) {
+            blocks[c] = ByteBuffer.allocateDirect(BLOCK_ROWS * 8).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(COLUMNS).putInt(0).putLong(capacity).putLong(rows);
+        header.clear();
+        channel.write(header, 0);
+    }
+
+    public void write(double t, double nu, double omega, double solarLongitude, double[] q) throws IOException {
+        if(rows == capacity) {
+            throw new IOException("Attitude file is full: " + capacity + " rows");
+        }
+        blocks[T].putDouble(t);
+        blocks[NU].putDouble(nu);
+        blocks[OMEGA].putDouble(omega);
+        blocks[SOLAR_LONGITUDE].putDouble(solarLongitude);
+        blocks[Q0].putDouble(q[0]);
+        blocks[Q1].putDouble(q[1]);
+        blocks[Q2].putDouble(q[2]);
+        blocks[Q3].putDouble(q[3]);
+        rows += 1;
+        if(rows - blockStart == BLOCK_ROWS) {
+            flush();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private void flush() throws IOException {
+        for(int c = 0; c < COLUMNS; c++) {
+            long position = HEADER_SIZE + 8 * (c * capacity + blockStart);
+            blocks[c].flip();
+            while(blocks[c].hasRemaining()) {
+                position += channel.write(blocks[c], position);
+            }
+            blocks[c].clear();
+        }
+        blockStart = rows;
+    }
+
+    public void sync() throws IOException {
+        // Writes the buffered rows and the number of rows to disk, so that the file is complete up to now
+        flush();
+        writeHeader();
+        channel.force(false);
+    }
+
+    public void close() throws IOException {
+        // Writes the remaining rows and the final number of rows
+        flush();
+        writeHeader();
+        channel.close();
+    }
+}
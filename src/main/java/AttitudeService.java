@@ -0,0 +1,177 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.math3.exception.MaxCountExceededException;
+import org.apache.commons.math3.ode.sampling.StepHandler;
+import org.apache.commons.math3.ode.sampling.StepInterpolator;
+
+
+public class AttitudeService implements StepHandler {
+    // Continuous nu(t) and omega(t), kept from the dense output of the integrator
+    // For every integrator step, both components are fitted with a Chebyshev series of degree 7, which reproduces
+    // the 7th order dense output of DormandPrince853 to rounding error, so queries need no re-integration
+    // The coefficients are stored compactly off-heap; recently used steps are decoded into an LRU cache
+    private static final int COEFFICIENTS = 8;                       // Chebyshev coefficients per component
+    private static final int SEGMENT_COEFFICIENTS = 2 * COEFFICIENTS; // coefficients of one step, nu then omega
+
+    private double[] startTimes;
+    private double[] endTimes;
+    private DoubleBuffer coefficients;
+    private int nSegments;
+
+    private double[] nodes;
+    private double[][] nodeValues;
+    private double[] cosines;
+
+    private LinkedHashMap<Integer, double[]> cache;
+    private int lastIndex;
+    private double[] lastSegment;
+
+    public AttitudeService(final int cacheSize) {
+        startTimes = new double[1024];
+        endTimes = new double[1024];
+        coefficients = allocate(1024 * SEGMENT_COEFFICIENTS);
+        nSegments = 0;
+
+        // Chebyshev nodes and the cosines needed for the fit
+        nodes = new double[COEFFICIENTS];
+        nodeValues = new double[COEFFICIENTS][];
+        cosines = new double[COEFFICIENTS * COEFFICIENTS];
+        for(int k = 0; k < COEFFICIENTS; k++) {
+            nodes[k] = Math.cos(Math.PI * (k + 0.5) / COEFFICIENTS);
+            for(int j = 0; j < COEFFICIENTS; j++) {
+                cosines[j * COEFFICIENTS + k] = Math.cos(Math.PI * j * (k + 0.5) / COEFFICIENTS);
+            }
+        }
+
+        cache = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        lastIndex = -1;
+    }
+
+    private static DoubleBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(8 * size).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    public void init(double t0, double[] y0, double t) {
+    }
+
+    public void handleStep(StepInterpolator interpolator, boolean isLast) throws MaxCountExceededException {
+        double t0 = interpolator.getPreviousTime();
+        double t1 = interpolator.getCurrentTime();
+        if(t1 == t0) {
+            return;
+        }
+        double mid = 0.5 * (t0 + t1);
+        double half = 0.5 * (t1 - t0);
+
+        for(int k = 0; k < COEFFICIENTS; k++) {
+            interpolator.setInterpolatedTime(mid + half * nodes[k]);
+            nodeValues[k] = interpolator.getInterpolatedState().clone();
+        }
+
+        if(nSegments == startTimes.length) {
+            startTimes = Arrays.copyOf(startTimes, 2 * nSegments);
+            endTimes = Arrays.copyOf(endTimes, 2 * nSegments);
+            DoubleBuffer larger = allocate(2 * nSegments * SEGMENT_COEFFICIENTS);
+            coefficients.clear();
+            larger.put(coefficients);
+            coefficients = larger;
+        }
+        startTimes[nSegments] = t0;
+        endTimes[nSegments] = t1;
+
+        int offset = nSegments * SEGMENT_COEFFICIENTS;
+        for(int component = 0; component < 2; component++) {
+            for(int j = 0; j < COEFFICIENTS; j++) {
+                double sum = 0;
+                for(int k = 0; k < COEFFICIENTS; k++) {
+                    sum += nodeValues[k][component] * cosines[j * COEFFICIENTS + k];
+                }
+                coefficients.put(offset + component * COEFFICIENTS + j, 2.0 * sum / COEFFICIENTS);
+            }
+        }
+        nSegments += 1;
+    }
+
+    public int getNumberOfSegments() {
+        return nSegments;
+    }
+
+    public double getStartTime() {
+        return startTimes[0];
+    }
+
+    public double getEndTime() {
+        return endTimes[nSegments - 1];
+    }
+
+    private int findSegment(double t) {
+        if(nSegments == 0 || t < startTimes[0] || t > endTimes[nSegments - 1]) {
+            throw new IllegalArgumentException("Time " + t + " outside of the integrated interval");
+        }
+        if(lastIndex >= 0 && t >= startTimes[lastIndex] && t <= endTimes[lastIndex]) {
+            return lastIndex;
+        }
+        int i = Arrays.binarySearch(startTimes, 0, nSegments, t);
+        if(i < 0) {
+            i = -i - 2;
+        }
+        return i;
+    }
+
+    private double[] decode(int i) {
+        double[] segment = cache.get(i);
+        if(segment == null) {
+            segment = new double[SEGMENT_COEFFICIENTS];
+            for(int j = 0; j < SEGMENT_COEFFICIENTS; j++) {
+                segment[j] = coefficients.get(i * SEGMENT_COEFFICIENTS + j);
+            }
+            cache.put(i, segment);
+        }
+        return segment;
+    }
+
+    private static double evaluate(double[] c, int offset, double x) {
+        // Clenshaw recurrence for sum(c_j T_j(x)) - c_0 / 2
+        double b1 = 0;
+        double b2 = 0;
+        for(int j = COEFFICIENTS - 1; j >= 1; j--) {
+            double b0 = 2 * x * b1 - b2 + c[offset + j];
+            b2 = b1;
+            b1 = b0;
+        }
+        return x * b1 - b2 + 0.5 * c[offset];
+    }
+
+    public synchronized void getState(double t, double[] y) {
+        // Writes nu(t) and omega(t) into y
+        int i = findSegment(t);
+        if(i != lastIndex) {
+            lastSegment = decode(i);
+            lastIndex = i;
+        }
+        double x = (2 * t - startTimes[i] - endTimes[i]) / (endTimes[i] - startTimes[i]);
+        y[0] = evaluate(lastSegment, 0, x);
+        y[1] = evaluate(lastSegment, COEFFICIENTS, x);
+    }
+
+    public double getNu(double t) {
+        double[] y = new double[2];
+        getState(t, y);
+        return y[0];
+    }
+
+    public double getOmega(double t) {
+        double[] y = new double[2];
+        getState(t, y);
+        return y[1];
+    }
+}
@@ -0,0 +1,45 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+public class CheckpointWriter {
+    // Writes MissionCheckpoints alternating between path.0 and path.1
+    // The counts are streamed from the CountsStore through one reused direct buffer, since a single mapping
+    // cannot hold more than 2^31 bytes, i.e. the counts of nside 8192 and up
+    private String path;
+    private ByteBuffer buffer;
+    private int slot;
+
+    public CheckpointWriter(String path) {
+        this.path = FilePaths.expand(path);
+        this.slot = 0;
+    }
+
+    public void clear() throws IOException {
+        // Removes the checkpoints of an earlier run
+        slot = 0;
+        Files.deleteIfExists(Paths.get(path + ".0"));
+        Files.deleteIfExists(Paths.get(path + ".1"));
+    }
+
+    public void resume(MissionCheckpoint checkpoint) throws IOException {
+        // Continue the files of a resumed run: the next checkpoint goes over the file that does not hold
+        // the given one, so it stays intact until a newer checkpoint is complete
+        slot = MissionCheckpoint.readStep(Paths.get(path + ".0")) == checkpoint.getStep() ? 1 : 0;
+    }
+
+    public void write(MissionCheckpoint checkpoint) throws IOException {
+        if(buffer == null) {
+            buffer = ByteBuffer.allocateDirect(4 * MissionCheckpoint.CHUNK_SIZE);
+        }
+        try(FileChannel channel = FileChannel.open(Paths.get(path + "." + slot),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            MissionCheckpoint.write(channel, buffer, checkpoint);
+        }
+        slot = 1 - slot;
+    }
+}
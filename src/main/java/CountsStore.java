@@ -0,0 +1,17 @@
+public interface CountsStore {
+    // Storage for the transit count of every HealPix pixel, indexed by long so that it can exceed 2^31 pixels
+    // Implementations start with narrow counts and promote themselves to wider storage when a count overflows
+    public long size();
+    public int get(long i);
+    public int increment(long i);            // returns the new count
+    public void set(long i, int value);
+    public int getBytesPerCount();
+
+    public static CountsStore create(long size) {
+        // 16 bit counts on the heap while they fit in a Java array, off-heap beyond that
+        if(size <= HeapCounts.MAX_SIZE) {
+            return new HeapCounts((int)size);
+        }
+        return new OffHeapCounts(size);
+    }
+}
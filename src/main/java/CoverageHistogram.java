@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+
+public class CoverageHistogram {
+    // Count of counts: the number of pixels with each transit count, updated for every counted transit
+    // Counts only grow, so the minimum only moves up and the maximum is the largest count seen
+    // Min, max and mean, and the fraction of the sky at or above a registered threshold, are read in O(1);
+    // percentiles walk the histogram, whose length is the maximum count
+    private long[] histogram;
+    private long npix;
+    private long sum;
+    private int min;
+    private int max;
+    private int[] thresholds;
+    private long[] atOrAbove;
+
+    public CoverageHistogram(long npix) {
+        this.npix = npix;
+        histogram = new long[64];
+        histogram[0] = npix;
+        sum = 0;
+        min = 0;
+        max = 0;
+        thresholds = new int[0];
+        atOrAbove = new long[0];
+    }
+
+    public CoverageHistogram(long[] histogram) {
+        // From a count of counts: histogram[k] is the number of pixels with k transits
+        this.histogram = Arrays.copyOf(histogram, Math.max(1, histogram.length));
+        npix = 0;
+        sum = 0;
+        max = 0;
+        for(int k = 0; k < histogram.length; k++) {
+            npix += histogram[k];
+            sum += k * histogram[k];
+            if(histogram[k] > 0) {
+                max = k;
+            }
+        }
+        min = 0;
+        while(min < max && this.histogram[min] == 0) {
+            min += 1;
+        }
+        thresholds = new int[0];
+        atOrAbove = new long[0];
+    }
+
+    public void increment(int newCount) {
+        // A pixel went from newCount - 1 to newCount transits
+        if(newCount == histogram.length) {
+            histogram = Arrays.copyOf(histogram, 2 * histogram.length);
+        }
+        histogram[newCount - 1] -= 1;
+        histogram[newCount] += 1;
+        sum += 1;
+        if(newCount > max) {
+            max = newCount;
+        }
+        while(histogram[min] == 0) {
+            min += 1;
+        }
+        for(int k = 0; k < thresholds.length; k++) {
+            if(thresholds[k] == newCount) {
+                atOrAbove[k] += 1;
+            }
+        }
+    }
+
+    public void recount(CountsStore counts) {
+        // Rebuild the histogram from scratch, e.g. after the counts were restored from a checkpoint
+        Arrays.fill(histogram, 0);
+        sum = 0;
+        max = 0;
+        for(long i = 0; i < counts.size(); i++) {
+            int c = counts.get(i);
+            if(c >= histogram.length) {
+                histogram = Arrays.copyOf(histogram, Math.max(2 * histogram.length, c + 1));
+            }
+            histogram[c] += 1;
+            sum += c;
+            max = Math.max(max, c);
+        }
+        min = 0;
+        while(histogram[min] == 0) {
+            min += 1;
+        }
+        for(int k = 0; k < thresholds.length; k++) {
+            atOrAbove[k] = countAtLeast(thresholds[k]);
+        }
+    }
+
+    public void addThreshold(int n) {
+        // Keep track of the number of pixels with at least n transits, so that getFractionAtLeast(n) is O(1)
+        for(int threshold: thresholds) {
+            if(threshold == n) {
+                return;
+            }
+        }
+        thresholds = Arrays.copyOf(thresholds, thresholds.length + 1);
+        atOrAbove = Arrays.copyOf(atOrAbove, atOrAbove.length + 1);
+        thresholds[thresholds.length - 1] = n;
+        atOrAbove[atOrAbove.length - 1] = countAtLeast(n);
+    }
+
+    private long countAtLeast(int n) {
+        long res = 0;
+        for(int k = Math.max(n, 0); k <= max; k++) {
+            res += histogram[k];
+        }
+        return res;
+    }
+
+    public long getNpix() {
+        return npix;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return sum / (double)npix;
+    }
+
+    public int getMedian() {
+        return getPercentile(50);
+    }
+
+    public int getPercentile(double percentage) {
+        // Smallest count such that at least percentage % of the pixels have at most that many transits
+        long rank = Math.max(1, (long)Math.ceil(percentage / 100.0 * npix));
+        long seen = 0;
+        for(int k = min; k < max; k++) {
+            seen += histogram[k];
+            if(seen >= rank) {
+                return k;
+            }
+        }
+        return max;
+    }
+
+    public double getFractionAtLeast(int n) {
+        // Fraction of the sky with at least n transits
+        for(int k = 0; k < thresholds.length; k++) {
+            if(thresholds[k] == n) {
+                return atOrAbove[k] / (double)npix;
+            }
+        }
+        return countAtLeast(n) / (double)npix;
+    }
+
+    public double getFractionBelow(int n) {
+        // Fraction of the sky with fewer than n transits
+        return (npix - countAtLeast(n)) / (double)npix;
+    }
+
+    public CoverageMetrics getMetrics() {
+        // The metrics keep a copy of the histogram, so they do not change with later transits
+        return new CoverageMetrics(Arrays.copyOf(histogram, max + 1));
+    }
+}
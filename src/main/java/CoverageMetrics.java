@@ -0,0 +1,46 @@
+public class CoverageMetrics {
+    // Uniformity of the sky coverage, from the number of pixels with each transit count
+    // A fixed snapshot, evaluated by a CoverageHistogram of its own
+    private CoverageHistogram histogram;
+
+    public CoverageMetrics(long[] histogram) {
+        // histogram[k] is the number of pixels with k transits
+        this.histogram = new CoverageHistogram(histogram);
+    }
+
+    public static CoverageMetrics fromCounts(int[] counts) {
+        int max = 0;
+        for(int c: counts) {
+            max = Math.max(max, c);
+        }
+        long[] histogram = new long[max + 1];
+        for(int c: counts) {
+            histogram[c] += 1;
+        }
+        return new CoverageMetrics(histogram);
+    }
+
+    public long getNpix() {
+        return histogram.getNpix();
+    }
+
+    public int getMin() {
+        return histogram.getMin();
+    }
+
+    public int getMax() {
+        return histogram.getMax();
+    }
+
+    public double getMean() {
+        return histogram.getMean();
+    }
+
+    public int getPercentile(double percentage) {
+        return histogram.getPercentile(percentage);
+    }
+
+    public double getFractionBelow(int n) {
+        return histogram.getFractionBelow(n);
+    }
+}
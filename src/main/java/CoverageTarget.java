@@ -0,0 +1,52 @@
+import org.apache.commons.math3.ode.events.EventHandler;
+
+
+public class CoverageTarget implements EventHandler {
+    // Stops the integration once a fraction of the sky has at least a number of transits,
+    // e.g. new CoverageTarget(histogram, 0.999, 20) stops when 99.9% of the pixels have 20 transits or more
+    // The target is reached in the step handlers, which run after the switching function has been checked for a step
+    // The switching function therefore changes sign just after the last time at which it saw the target unmet,
+    // so the integration stops right at the start of the following integrator step, which the step handlers
+    // see as the last step
+    private CoverageHistogram histogram;
+    private double fraction;
+    private int transits;
+    private double lastUnmet;
+    private double reachedAfter;
+
+    public CoverageTarget(CoverageHistogram histogram, double fraction, int transits) {
+        this.histogram = histogram;
+        this.fraction = fraction;
+        this.transits = transits;
+        histogram.addThreshold(transits);
+    }
+
+    public boolean isReached() {
+        return !Double.isNaN(reachedAfter);
+    }
+
+    public void init(double t0, double[] y0, double t) {
+        lastUnmet = t0;
+        reachedAfter = Double.NaN;
+    }
+
+    public double g(double t, double[] y) {
+        if(Double.isNaN(reachedAfter)) {
+            if(histogram.getFractionAtLeast(transits) >= fraction) {
+                reachedAfter = lastUnmet;
+            }
+            else {
+                lastUnmet = Math.max(lastUnmet, t);
+            }
+        }
+        return Double.isNaN(reachedAfter) || t <= reachedAfter ? 1 : -1;
+    }
+
+    public Action eventOccurred(double t, double[] y, boolean increasing) {
+        System.out.println("Coverage target reached at t = " + t + ": " + fraction + " of the sky with at least " + transits + " transits");
+        return Action.STOP;
+    }
+
+    public void resetState(double t, double[] y) {
+    }
+}
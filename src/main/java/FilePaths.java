@@ -0,0 +1,17 @@
+import java.io.File;
+
+
+public class FilePaths {
+    // Helpers for the file names given on the command line and in configurations
+
+    private FilePaths() {
+    }
+
+    public static String expand(String path) {
+        // Replaces a leading ~ by the home directory, as the shell would
+        if(path.startsWith("~" + File.separator)) {
+            return System.getProperty("user.home") + path.substring(1);
+        }
+        return path;
+    }
+}
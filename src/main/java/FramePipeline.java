@@ -0,0 +1,138 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+
+public class FramePipeline {
+    // Renders and encodes frames on a pool of worker threads while the simulation continues
+    // At most maxPendingFrames frames are in flight; submitting another one blocks until the oldest is written
+    // Encoding happens on the workers; frames are passed to the frame sink of the mapper in the order in which they were submitted
+    // All threads are daemon threads, so a run that fails before close does not keep the JVM alive
+    // If the writer thread fails, submit, drain and close throw IllegalStateException instead of waiting for it
+    private static class EncodedFrame {
+        int frameNumber;
+        byte[] data;
+
+        EncodedFrame(int frameNumber, byte[] data) {
+            this.frameNumber = frameNumber;
+            this.data = data;
+        }
+    }
+
+    private HealPixDensityMapper mapper;
+    private ExecutorService workers;
+    private Thread writer;
+    private BlockingQueue<Future<EncodedFrame>> pending;
+    private Semaphore slots;
+    private int maxPendingFrames;
+    private ConcurrentLinkedQueue<int[]> buffers;
+    private Future<EncodedFrame> endOfFrames;
+    private volatile Throwable writerFailure;
+
+    public FramePipeline(HealPixDensityMapper mapper, int nThreads, int maxPendingFrames) {
+        this.mapper = mapper;
+        workers = Executors.newFixedThreadPool(nThreads, r -> {
+            Thread t = new Thread(r, "frame-renderer");
+            t.setDaemon(true);
+            return t;
+        });
+        pending = new ArrayBlockingQueue<>(maxPendingFrames + 1);
+        slots = new Semaphore(maxPendingFrames);
+        this.maxPendingFrames = maxPendingFrames;
+        buffers = new ConcurrentLinkedQueue<>();
+        endOfFrames = new FutureTask<>(() -> null);
+
+        writer = new Thread(this::writeFrames, "frame-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void submit(int n) throws Exception {
+        // Backpressure: wait until there is room for another frame
+        slots.acquire();
+
+        try {
+            checkWriter();
+            // Reuse the buffer of a frame that has already been rendered
+            int[] buffer = buffers.poll();
+            if(buffer == null || buffer.length != mapper.getSnapshotSize()) {
+                buffer = new int[mapper.getSnapshotSize()];
+            }
+            final FrameSnapshot frame = mapper.snapshot(n, buffer);
+
+            pending.put(workers.submit(() -> {
+                try {
+                    return new EncodedFrame(frame.getFrameNumber(), mapper.encodeFrame(mapper.renderFrame(frame)));
+                }
+                finally {
+                    buffers.add(frame.getBuffer());
+                }
+            }));
+        }
+        catch(Exception e) {
+            // The frame never reaches the writer, which would release its slot
+            slots.release();
+            throw e;
+        }
+    }
+
+    private void writeFrames() {
+        try {
+            while(true) {
+                Future<EncodedFrame> f = pending.take();
+                if(f == endOfFrames) {
+                    break;
+                }
+                try {
+                    EncodedFrame frame = f.get();
+                    mapper.writeEncodedFrame(frame.data, frame.frameNumber);
+                }
+                catch(ExecutionException e) {
+                    // A frame that fails to render is skipped
+                    System.out.println("Error: " + e.getCause());
+                }
+                catch(Throwable e) {
+                    // Recorded before the slot is released, so the next submit sees it
+                    writerFailure = e;
+                    throw e;
+                }
+                finally {
+                    slots.release();
+                }
+            }
+        }
+        catch(Throwable e) {
+            // No more frames will be written: record why and wake up everyone waiting for a slot
+            System.out.println("Error: " + e);
+            writerFailure = e;
+            slots.release(maxPendingFrames);
+        }
+    }
+
+    private void checkWriter() {
+        if(writerFailure != null) {
+            throw new IllegalStateException("Frame writer failed: " + writerFailure, writerFailure);
+        }
+    }
+
+    public void drain() throws InterruptedException {
+        // Wait until all submitted frames are written; more frames can be submitted afterwards
+        slots.acquire(maxPendingFrames);
+        slots.release(maxPendingFrames);
+        checkWriter();
+    }
+
+    public void close() throws InterruptedException {
+        // Wait until all submitted frames are written
+        pending.put(endOfFrames);
+        writer.join();
+        workers.shutdown();
+        checkWriter();
+    }
+}
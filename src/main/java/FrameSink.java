@@ -0,0 +1,12 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+
+public interface FrameSink {
+    // Destination of the rendered frames
+    // encode may be called for several frames at once from different threads; write is called from a single thread,
+    // in frame order, with the result of encode
+    public byte[] encode(BufferedImage img) throws IOException;
+    public void write(byte[] data, int frameNumber) throws IOException;
+    public void close() throws IOException;
+}
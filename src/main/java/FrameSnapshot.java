@@ -0,0 +1,68 @@
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+
+
+public class FrameSnapshot {
+    // Everything needed to render a single frame, decoupled from the running simulation
+    private int frameNumber;
+    private int[] counts;
+    private int[] pixels;
+    private double time;
+    private SphericalCoordinates sunPosition;
+    private SphericalCoordinates precessionPosition;
+    private long[] statistics;
+
+    public FrameSnapshot(int frameNumber, int[] counts, double time, SphericalCoordinates sunPosition, SphericalCoordinates precessionPosition) {
+        this(frameNumber, counts, time, sunPosition, precessionPosition, null);
+    }
+
+    public FrameSnapshot(int frameNumber, int[] counts, double time, SphericalCoordinates sunPosition, SphericalCoordinates precessionPosition,
+                         long[] statistics) {
+        this(frameNumber, counts, null, time, sunPosition, precessionPosition, statistics);
+    }
+
+    public FrameSnapshot(int frameNumber, int[] counts, int[] pixels, double time, SphericalCoordinates sunPosition,
+                         SphericalCoordinates precessionPosition, long[] statistics) {
+        // statistics is {min, max, sum} of counts when already known, or null
+        // pixels is the already colored map, row by row, when counts is null
+        this.frameNumber = frameNumber;
+        this.pixels = pixels;
+        this.statistics = statistics;
+        this.counts = counts;
+        this.time = time;
+        this.sunPosition = sunPosition;
+        this.precessionPosition = precessionPosition;
+    }
+
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public SphericalCoordinates getSunPosition() {
+        return sunPosition;
+    }
+
+    public SphericalCoordinates getPrecessionPosition() {
+        return precessionPosition;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int[] getBuffer() {
+        // Whichever of counts and pixels this snapshot holds
+        return counts != null ? counts : pixels;
+    }
+
+    public long[] getStatistics() {
+        return statistics;
+    }
+}
@@ -2,6 +2,9 @@ public class HammerProjection implements Projection {
     private double centerTheta;
     private int longitudeSign;
     private double scale;
+    private double[] xRange;
+    private double[] yRange;
+    private RenderKernels kernels;
 
     // centerLongitude is supplied in degrees
     public HammerProjection(double centerLongitude) {
@@ -17,18 +20,9 @@ public class HammerProjection implements Projection {
             this.longitudeSign = 1;
         }
         this.scale = Math.sqrt(2);
-
-    }
-
-    // ensure theta within -PI, PI
-    private double reduceTheta(double theta) {
-        while(theta > Math.PI) {
-            theta -= 2*Math.PI;
-        }
-        while(theta < -Math.PI) {
-            theta += 2*Math.PI;
-        }
-        return theta;
+        this.xRange = new double[] {-2 * scale, 2 * scale};
+        this.yRange = new double[] {-scale, scale};
+        this.kernels = RenderKernels.create();
     }
 
     public double getCenterLongitude() {
@@ -42,7 +36,7 @@ public class HammerProjection implements Projection {
 
     // Project using theta (angle around equator) and phi (angle from north pole) in radians
     public double[] projectThetaPhi(double theta, double phi) {
-        theta = reduceTheta(theta - centerTheta)/2.0;
+        theta = Projection.reduceTheta(theta - centerTheta)/2.0;
         phi = Math.PI/2.0 - phi;
 
         double cl = Math.cos(theta);
@@ -54,6 +48,24 @@ public class HammerProjection implements Projection {
         return new double[] {2 * longitudeSign * scale * cp * sl / denom, scale * sp / denom};
     }
 
+    // Batch projection without allocation; same arithmetic as projectThetaPhi, so the results are identical
+    public void projectThetaPhi(double[] theta, double[] phi, int inOffset, double[] x, double[] y, int outOffset, int length) {
+        double xScale = 2 * longitudeSign * scale;
+        for(int i = 0; i < length; i++) {
+            double t = Projection.reduceTheta(theta[inOffset + i] - centerTheta)/2.0;
+            double p = Math.PI/2.0 - phi[inOffset + i];
+
+            double cl = Math.cos(t);
+            double sl = Math.sin(t);
+            double cp = Math.cos(p);
+            double sp = Math.sin(p);
+            double denom = Math.sqrt(1 + cp * cl);
+
+            x[outOffset + i] = xScale * cp * sl / denom;
+            y[outOffset + i] = scale * sp / denom;
+        }
+    }
+
     // Inverse project to longitude and latitude in degrees
     public double[] inverseProjectLongLat(double x, double y) {
         double [] thetaPhi = inverseProjectThetaPhi(x, y);
@@ -77,11 +89,18 @@ public class HammerProjection implements Projection {
         return new double[] {theta, phi};
     }
 
+    // Batch inverse projection without allocation, in the scalar or Vector API kernel, see RenderKernels
+    // The scalar kernel uses the same arithmetic as inverseProjectThetaPhi, so its results are identical
+    public void inverseProjectThetaPhi(double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length) {
+        kernels.inverseHammer(scale, longitudeSign, centerTheta, x, y, inOffset, theta, phi, outOffset, length);
+    }
+
+    // Copies, so that callers cannot change the range; callers in hot loops should keep their own copy
     public double[] getXRange() {
-        return new double[] {-2 * scale, 2 * scale};
+        return xRange.clone();
     }
 
     public double[] getYRange() {
-        return new double[] {-scale, scale};
+        return yRange.clone();
     }
 }
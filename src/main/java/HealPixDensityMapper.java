@@ -1,6 +1,12 @@
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.awt.Graphics2D;
 import java.awt.Color;
 import java.awt.BasicStroke;
@@ -8,9 +14,6 @@ import java.awt.Font;
 import java.awt.RenderingHints;
 import java.awt.FontMetrics;
 
-import java.util.ArrayList;
-import javax.imageio.ImageIO;
-
 import healpix.essentials.Scheme;
 import healpix.essentials.RangeSet;
 import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
@@ -26,15 +29,45 @@ public class HealPixDensityMapper {
     private int mapYOffset;
     private double deltax;
     private double deltay;
+    private double xMin;
+    private double yMin;
     private int titleOffset;
 
     private Projection projection;
     private HealPixWrapper healpix;
-    private int[] counts;
+    private CountsStore counts;
+    private CoverageHistogram coverage;
     private String outputFolder;
-    private ArrayList<Long> previousStepPixels;
-    private ArrayList<Long> currentPixels;
-    private int maxValue;
+    private FrameSink frameSink;
+    private RangeSet previousStepPixels;
+    private RangeSet currentPixels;
+    private int[] pixelLookup;
+    private ForkJoinPool renderPool;
+    private BufferedImage staticOverlay;
+    private TransitIndex transitIndex;
+    private PositionAngleHistogram positionAngles;
+    private double[] spinAxis = new double[3];
+    private double[] pixelVector = new double[3];
+    private int displayNside;
+    private int[] displayLookup;
+    private int[] displayParents;
+    private long[] displaySums;
+
+    // Incremental rendering: the colored map of the previous frame is kept in canvas, and only the screen pixels
+    // of HealPix pixels whose count changed since then are colored again, found through the reverse index
+    // screenPixels[screenStart[p]] .. screenPixels[screenStart[p + 1] - 1] of the pixel lookup
+    private boolean incremental;
+    private BitSet dirtyPixels;
+    private int[] screenStart;
+    private int[] screenPixels;
+    private int[] canvas;
+    private int canvasMaxValue;
+    private int[] canvasCounts;
+    private int[] palette;
+    private RenderKernels kernels;
+    private static final int OFF_MAP = -1;
+    private static final int BAND_HEIGHT = 16;
+    private static final int STATISTICS_CHUNK = 1 << 16;
 
     private double epsilon;
     private double time;
@@ -42,6 +75,12 @@ public class HealPixDensityMapper {
     private SphericalCoordinates precessionPosition;
 
     public HealPixDensityMapper(int imageWidth, int imageHeight, int mapWidth, int mapHeight, Projection projection, int nside, String outputFolder) throws Exception {
+        this(imageWidth, imageHeight, mapWidth, mapHeight, projection, nside, Scheme.RING, outputFolder);
+    }
+
+    public HealPixDensityMapper(int imageWidth, int imageHeight, int mapWidth, int mapHeight, Projection projection, int nside, Scheme scheme, String outputFolder) throws Exception {
+        // With Scheme.NESTED the counts are kept in NESTED order, and maps at coarser nside can be drawn from them
+        // without running the mission again, see setDisplayNside
         this.imageWidth = imageWidth;
         this.imageHeight = imageHeight;
         this.mapWidth = mapWidth;
@@ -50,28 +89,43 @@ public class HealPixDensityMapper {
         this.mapYOffset = (imageHeight - mapHeight)/2;
         this.titleOffset = 0;
         this.projection = projection;
-        this.healpix = new HealPixWrapper(nside, Scheme.RING);
+        this.healpix = new HealPixWrapper(nside, scheme);
+        this.displayNside = nside;
 
-        this.outputFolder = outputFolder;
-        if (this.outputFolder.startsWith("~" + File.separator)) {
-            this.outputFolder = System.getProperty("user.home") + this.outputFolder.substring(1);
-        }
+        this.outputFolder = FilePaths.expand(outputFolder);
         if(!this.outputFolder.endsWith("/")) {
             this.outputFolder += File.separator;
         }
+        frameSink = new PngFrameSink(this.outputFolder);
+        palette = getPalette(ColorMap.getJet(256));
+        kernels = RenderKernels.create();
 
         double[] xRange = projection.getXRange();
         double[] yRange = projection.getYRange();
 
         deltax = (xRange[1] - xRange[0]) / mapWidth;
         deltay = (yRange[1] - yRange[0]) / mapHeight;
+        xMin = xRange[0];
+        yMin = yRange[0];
 
-        counts = new int[(int)healpix.getNpix()];
-        for(int i=0; i<healpix.getNpix(); i++) {
-            counts[i] = 0;
-        }
-        previousStepPixels = new ArrayList<>();
-        currentPixels = new ArrayList<>();
+        counts = CountsStore.create(healpix.getNpix());
+        coverage = new CoverageHistogram(healpix.getNpix());
+        previousStepPixels = new RangeSet();
+        currentPixels = new RangeSet();
+    }
+
+    public HealPixDensityMapper(int nside) throws Exception {
+        this(nside, Scheme.RING);
+    }
+
+    public HealPixDensityMapper(int nside, Scheme scheme) throws Exception {
+        // Coverage only: counts transits, but cannot draw maps
+        this.healpix = new HealPixWrapper(nside, scheme);
+        this.displayNside = nside;
+        counts = CountsStore.create(healpix.getNpix());
+        coverage = new CoverageHistogram(healpix.getNpix());
+        previousStepPixels = new RangeSet();
+        currentPixels = new RangeSet();
     }
 
     public void setEpsilon(double epsilon) {
@@ -82,96 +136,622 @@ public class HealPixDensityMapper {
         this.time = time;
         this.sunPosition = sunPosition;
         this.precessionPosition = precessionPosition;
+        if(positionAngles != null) {
+            updateSpinAxis();
+        }
         previousStepPixels = currentPixels;
-        currentPixels = new ArrayList<>();
+        currentPixels = new RangeSet();
     }
 
     public void addRectangularArea(Vector3D[] rect) {
-        for(long p: getPixelsForRectangle(rect).toArray()) {
-            if(!previousStepPixels.contains(p)) {
-                counts[(int)p] += 1;
+        // Pixels that were already covered in the previous step belong to the same transit and are not counted again
+        RangeSet pixels = getPixelsForRectangle(rect);
+        RangeSet newPixels = pixels.difference(previousStepPixels);
+        for(int i = 0; i < newPixels.nranges(); i++) {
+            for(long p = newPixels.ivbegin(i); p < newPixels.ivend(i); p++) {
+                coverage.increment(counts.increment(p));
+            }
+            if(incremental) {
+                dirtyPixels.set((int)newPixels.ivbegin(i), (int)newPixels.ivend(i));
+            }
+        }
+        if(transitIndex != null) {
+            long micros = Math.round(time * 86400e6);
+            for(int i = 0; i < newPixels.nranges(); i++) {
+                for(long p = newPixels.ivbegin(i); p < newPixels.ivend(i); p++) {
+                    transitIndex.add((int)p, micros);
+                }
             }
-            currentPixels.add(p);
         }
+        if(positionAngles != null) {
+            try {
+                for(int i = 0; i < newPixels.nranges(); i++) {
+                    for(long p = newPixels.ivbegin(i); p < newPixels.ivend(i); p++) {
+                        healpix.pix2vect(p, pixelVector);
+                        positionAngles.add(p, PositionAngleHistogram.positionAngle(pixelVector[0], pixelVector[1], pixelVector[2], spinAxis));
+                    }
+                }
+            }
+            catch(Exception e) {
+                System.out.println("Error: " + e);
+            }
+        }
+        currentPixels = currentPixels.union(pixels);
+    }
+
+    public void markRectangularArea(Vector3D[] rect) {
+        // Registers the area as covered in the current step without counting it,
+        // e.g. to continue deduplication from a step that was counted elsewhere
+        currentPixels = currentPixels.union(getPixelsForRectangle(rect));
+    }
+
+    public SphericalCoordinates[] scanStep(AttitudeCalculator a, double time, double solarLongitude, double nu, double omega) {
+        // One step of the scanning law: the attitude at (solarLongitude, nu, omega), then the transits through both
+        // fields of view; returns the directions of calculateDirections, and leaves the attitude of the step in a
+        return scanStep(a, time, solarLongitude, nu, omega, true);
+    }
+
+    public void markStep(AttitudeCalculator a, double time, double solarLongitude, double nu, double omega) {
+        // Like scanStep, but only registers the fields of view for deduplication, see markRectangularArea
+        scanStep(a, time, solarLongitude, nu, omega, false);
+    }
+
+    private SphericalCoordinates[] scanStep(AttitudeCalculator a, double time, double solarLongitude, double nu, double omega, boolean count) {
+        SphericalCoordinates[] scs = a.calculateDirections(solarLongitude, nu, omega);
+        nextStep(time, scs[0], scs[1]);
+        Vector3D[][] fovs = a.calculateFoVs();
+        if(count) {
+            addRectangularArea(fovs[0]);
+            addRectangularArea(fovs[1]);
+        }
+        else {
+            markRectangularArea(fovs[0]);
+            markRectangularArea(fovs[1]);
+        }
+        return scs;
+    }
+
+    public void enableTransitIndex(long resolutionMicros) {
+        // Also record the time of every counted transit, relative to the time passed to nextStep, rounded to resolutionMicros
+        // Only transits counted from now on are indexed; restore() does not bring back earlier transit times
+        checkIntPixels("The transit index");
+        transitIndex = new TransitIndex((int)counts.size(), resolutionMicros);
+    }
+
+    public TransitIndex getTransitIndex() {
+        return transitIndex;
+    }
+
+    public void enablePositionAngles() {
+        // Also count the scan direction of every counted transit at the pixel center, relative to the spin axis
+        // passed to nextStep; only transits counted from now on, restore() does not bring back earlier ones
+        positionAngles = new PositionAngleHistogram(counts.size());
+        if(precessionPosition != null) {
+            updateSpinAxis();
+        }
+    }
+
+    private void updateSpinAxis() {
+        Vector3D v = precessionPosition.getCartesian();
+        spinAxis[0] = v.getX();
+        spinAxis[1] = v.getY();
+        spinAxis[2] = v.getZ();
+    }
+
+    public PositionAngleHistogram getPositionAngles() {
+        return positionAngles;
+    }
+
+    private void checkIntPixels(String feature) {
+        // Features that index pixels with int need less than 2^31 pixels, i.e. nside 8192 or less
+        if(counts.size() > Integer.MAX_VALUE) {
+            throw new IllegalStateException(feature + " needs less than 2^31 pixels, nside " + healpix.getNside()
+                    + " has " + counts.size());
+        }
+    }
+
+    public int[] getCounts() {
+        // Copy of the counts, in the order of the scheme of the mapper; needs less than 2^31 pixels,
+        // use getCountsStore beyond that
+        checkIntPixels("getCounts");
+        int[] res = new int[(int)counts.size()];
+        for(int i = 0; i < res.length; i++) {
+            res[i] = counts.get(i);
+        }
+        return res;
+    }
+
+    public CoverageHistogram getCoverageHistogram() {
+        // Coverage statistics, kept up to date by addRectangularArea
+        return coverage;
+    }
+
+    public CountsStore getCountsStore() {
+        return counts;
+    }
+
+    public void setCountsStore(CountsStore store) {
+        // Keep the counts in store from now on, e.g. an OffHeapCounts for nside 8192 and up; the current counts are copied
+        if(store.size() != healpix.getNpix()) {
+            throw new IllegalArgumentException("Counts storage has " + store.size() + " pixels instead of " + healpix.getNpix());
+        }
+        for(long i = 0; i < store.size(); i++) {
+            store.set(i, counts.get(i));
+        }
+        counts = store;
+    }
+
+    public Scheme getScheme() {
+        return healpix.getScheme();
+    }
+
+    public NestedCounts getNestedCounts() {
+        // Copy of the counts in NESTED order
+        if(healpix.getScheme() == Scheme.NESTED) {
+            return new NestedCounts(healpix.getNside(), getCounts());
+        }
+        return NestedCounts.fromRing(healpix.getNside(), getCounts());
+    }
+
+    public synchronized void setDisplayNside(int nside) {
+        // Draw maps at a coarser nside, nside of the mapper divided by a power of two; each displayed pixel shows
+        // the mean count of its children
+        NestedCounts.getLevels(healpix.getNside(), nside);
+        displayNside = nside;
+        displayLookup = null;
+        displayParents = null;
+        displaySums = null;
+    }
+
+    private synchronized int[] getDisplayLookup() throws Exception {
+        // Pixel lookup into the NESTED pixels at the display nside
+        if(displayLookup == null) {
+            displayLookup = buildPixelLookup(new HealPixWrapper(displayNside, Scheme.NESTED));
+        }
+        return displayLookup;
+    }
+
+    private synchronized int[] getDisplayParents() throws Exception {
+        // RING mappers: the NESTED pixel at the display nside of every RING pixel, built once per display nside,
+        // so that every frame sums the counts straight from the counts store
+        if(displayParents == null) {
+            checkIntPixels("Drawing a RING map at a coarser display nside (use Scheme.NESTED)");
+            int shift = 2 * NestedCounts.getLevels(healpix.getNside(), displayNside);
+            int[] parents = new int[(int)counts.size()];
+            for(int r = 0; r < parents.length; r++) {
+                parents[r] = (int)(healpix.ring2nest(r) >> shift);
+            }
+            displaySums = new long[getNpix()];
+            displayParents = parents;
+        }
+        return displayParents;
+    }
+
+    private void copyDisplayCounts(int[] dest) throws Exception {
+        // Counts at the display nside: the counts themselves, or the rounded mean of the children in NESTED order
+        if(displayNside == healpix.getNside()) {
+            for(int i = 0; i < dest.length; i++) {
+                dest[i] = counts.get(i);
+            }
+            return;
+        }
+
+        int shift = 2 * NestedCounts.getLevels(healpix.getNside(), displayNside);
+        long half = (1L << shift) >> 1;
+        if(healpix.getScheme() == Scheme.NESTED) {
+            long j = 0;
+            for(int i = 0; i < dest.length; i++) {
+                long sum = 0;
+                for(long end = j + (1L << shift); j < end; j++) {
+                    sum += counts.get(j);
+                }
+                dest[i] = (int)((sum + half) >> shift);
+            }
+        }
+        else {
+            int[] parents = getDisplayParents();
+            long[] sums = displaySums;
+            Arrays.fill(sums, 0);
+            for(int r = 0; r < parents.length; r++) {
+                sums[parents[r]] += counts.get(r);
+            }
+            for(int i = 0; i < dest.length; i++) {
+                dest[i] = (int)((sums[i] + half) >> shift);
+            }
+        }
+    }
+
+    public RangeSet getCurrentPixels() {
+        // Pixels covered in the current step
+        return currentPixels;
+    }
+
+    public void restore(CountsStore counts, RangeSet currentPixels) {
+        // Continue from a saved state, e.g. a MissionCheckpoint
+        if(counts.size() != this.counts.size()) {
+            throw new IllegalArgumentException("Saved counts have " + counts.size() + " pixels instead of " + this.counts.size());
+        }
+        for(long i = 0; i < counts.size(); i++) {
+            this.counts.set(i, counts.get(i));
+        }
+        coverage.recount(this.counts);
+        canvasMaxValue = -1;
+        this.currentPixels = currentPixels;
+        this.previousStepPixels = new RangeSet();
     }
 
     private int[] worldToMap(double[] worldPoint) {
         return new int[] {
-                (int)((worldPoint[0] - projection.getXRange()[0])/deltax) + mapXOffset,
-                (int)(imageHeight - ((worldPoint[1] - projection.getYRange()[0])/deltay) - mapYOffset)
+                (int)((worldPoint[0] - xMin)/deltax) + mapXOffset,
+                (int)(imageHeight - ((worldPoint[1] - yMin)/deltay) - mapYOffset)
         };
     }
 
-    private double[] mapToWorld(int[] mapPoint) {
-        return new double[] {
-                projection.getXRange()[0] + (mapPoint[0] - mapXOffset) * deltax,
-                projection.getYRange()[0] + (imageHeight - (mapPoint[1] + mapYOffset)) * deltay
-        };
+    private int[] buildPixelLookup(HealPixWrapper wrapper) throws Exception {
+        // Maps every screen pixel (row-major) to its HealPix pixel, or OFF_MAP when outside the projection
+        // Depends only on the projection, the image size and nside, so it is computed once and reused for every frame
+        // Rows are inverse projected in one batch call; the x coordinates are the same for every row
+        int[] lookup = new int[imageWidth * imageHeight];
+        double[] x = new double[imageWidth];
+        double[] y = new double[imageWidth];
+        double[] theta = new double[imageWidth];
+        double[] phi = new double[imageWidth];
+
+        for(int i = 0; i < imageWidth; i++) {
+            x[i] = xMin + (i - mapXOffset) * deltax;
+        }
+        for(int j = 0; j < imageHeight; j++) {
+            Arrays.fill(y, yMin + (imageHeight - (j + mapYOffset)) * deltay);
+            projection.inverseProjectThetaPhi(x, y, 0, theta, phi, 0, imageWidth);
+
+            for(int i = 0; i < imageWidth; i++) {
+                if(!Double.isNaN(theta[i]) && !Double.isNaN(phi[i])) {
+                    lookup[j * imageWidth + i] = (int)wrapper.ang2pix(theta[i], phi[i]);
+                }
+                else {
+                    lookup[j * imageWidth + i] = OFF_MAP;
+                }
+            }
+        }
+        return lookup;
+    }
+
+    public void setIncrementalRendering(boolean incremental) {
+        // Keep the colored map between frames and only recolor what changed; the whole map is recolored when
+        // the maximum count, and with it the color scale, changes
+        // Only used when maps are drawn at the nside of the mapper, see setDisplayNside
+        if(incremental) {
+            checkIntPixels("Incremental rendering");
+        }
+        this.incremental = incremental;
+        dirtyPixels = incremental ? new BitSet() : null;
+        canvas = null;
+        canvasCounts = null;
+        canvasMaxValue = -1;
+    }
+
+    private boolean isIncremental() {
+        return incremental && imageWidth > 0 && displayNside == healpix.getNside();
+    }
+
+    private void buildReverseIndex(int[] lookup) {
+        // Counting sort of the screen pixels by HealPix pixel
+        int npix = getNpix();
+        screenStart = new int[npix + 1];
+        for(int ipix: lookup) {
+            if(ipix != OFF_MAP) {
+                screenStart[ipix + 1] += 1;
+            }
+        }
+        for(int p = 0; p < npix; p++) {
+            screenStart[p + 1] += screenStart[p];
+        }
+        screenPixels = new int[screenStart[npix]];
+        int[] next = Arrays.copyOf(screenStart, npix);
+        for(int k = 0; k < lookup.length; k++) {
+            if(lookup[k] != OFF_MAP) {
+                screenPixels[next[lookup[k]]++] = k;
+            }
+        }
+    }
+
+    private void updateCanvas(int maxValue) throws Exception {
+        // Bring canvas up to date with the current counts
+        int[] lookup = getPixelLookup();
+        if(canvas == null) {
+            canvas = new int[imageWidth * imageHeight];
+            canvasCounts = new int[getNpix()];
+            buildReverseIndex(lookup);
+        }
+
+        if(maxValue != canvasMaxValue) {
+            // The color scale changed: full redraw
+            copyDisplayCounts(canvasCounts);
+            ForkJoinPool pool = renderPool;
+            if(pool != null) {
+                pool.invoke(new RowBandTask(kernels, imageWidth, canvasCounts, lookup, canvas, 0, imageHeight, getColors(maxValue)));
+            }
+            else {
+                colorRows(kernels, imageWidth, canvasCounts, lookup, canvas, 0, imageHeight, getColors(maxValue));
+            }
+            canvasMaxValue = maxValue;
+        }
+        else {
+            for(int p = dirtyPixels.nextSetBit(0); p >= 0; p = dirtyPixels.nextSetBit(p + 1)) {
+                int col = getColor(counts.get(p), maxValue, palette);
+                for(int k = screenStart[p]; k < screenStart[p + 1]; k++) {
+                    canvas[screenPixels[k]] = col;
+                }
+            }
+        }
+        dirtyPixels.clear();
+    }
+
+    public int getSnapshotSize() {
+        // Length of the buffer that snapshot fills: screen pixels for incremental rendering, HealPix pixels otherwise
+        return isIncremental() ? imageWidth * imageHeight : getNpix();
     }
 
     public void drawMap(int n) throws Exception {
-        BufferedImage img = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = img.createGraphics();
+        // Synchronous rendering
+        writeFrame(renderFrame(snapshot(n, null)), n);
+    }
+
+    public FrameSnapshot snapshot(int n, int[] buffer) throws Exception {
+        // Capture the current state for frame n, so that the simulation can continue while the frame is rendered
+        // The counts at the display nside are copied into buffer, or into a new array when buffer is null;
+        // with incremental rendering buffer receives the colored map instead, see getSnapshotSize
+        if(isIncremental()) {
+            int[] pixels = buffer != null ? buffer : new int[getSnapshotSize()];
+            updateCanvas(coverage.getMax());
+            System.arraycopy(canvas, 0, pixels, 0, pixels.length);
+            long[] statistics = {coverage.getMin(), coverage.getMax(), coverage.getSum()};
+            return new FrameSnapshot(n, null, pixels, time, sunPosition, precessionPosition, statistics);
+        }
+
+        int[] frameCounts = buffer != null ? buffer : new int[getNpix()];
+        copyDisplayCounts(frameCounts);
+        long[] statistics = null;
+        if(displayNside == healpix.getNside()) {
+            statistics = new long[] {coverage.getMin(), coverage.getMax(), coverage.getSum()};
+        }
+        return new FrameSnapshot(n, frameCounts, time, sunPosition, precessionPosition, statistics);
+    }
+
+    public int getNpix() {
+        // Number of pixels of the drawn maps, at the display nside
+        long npix = 12L * displayNside * displayNside;
+        if(npix > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Maps of nside " + displayNside + " cannot be drawn, set a coarser display nside");
+        }
+        return (int)npix;
+    }
 
-        double theta, phi, ip[], p[];
-        long ipix;
-        int c, col, min = counts[0], sum=0;
-        int white = (255<<16) | (255<<8) | 255;
+    private synchronized int[] getPixelLookup() throws Exception {
+        if(pixelLookup == null) {
+            pixelLookup = buildPixelLookup(healpix);
+        }
+        return pixelLookup;
+    }
+
+    public void setParallelRendering(ForkJoinPool pool) {
+        // Render each frame in row bands on the given pool; null renders on the calling thread
+        this.renderPool = pool;
+    }
 
-        maxValue=0;
-        for(int i = 0; i<counts.length; i++) {
+    private static class StatisticsTask extends RecursiveTask<long[]> {
+        // Min, max and sum of a range of counts, split recursively
+        private static final long serialVersionUID = 1L;
+
+        private int[] counts;
+        private int from;
+        private int to;
+
+        StatisticsTask(int[] counts, int from, int to) {
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected long[] compute() {
+            if(to - from <= STATISTICS_CHUNK) {
+                return countStatistics(counts, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            StatisticsTask left = new StatisticsTask(counts, from, mid);
+            left.fork();
+            long[] right = new StatisticsTask(counts, mid, to).compute();
+            long[] res = left.join();
+            return new long[] {Math.min(res[0], right[0]), Math.max(res[1], right[1]), res[2] + right[2]};
+        }
+    }
+
+    private static class RowBandTask extends RecursiveAction {
+        // Colors the rows from startRow up to endRow, split recursively into bands
+        private static final long serialVersionUID = 1L;
+
+        private RenderKernels kernels;
+        private int width;
+        private int[] counts;
+        private int[] lookup;
+        private int[] data;
+        private int startRow;
+        private int endRow;
+        private int[] colors;
+
+        RowBandTask(RenderKernels kernels, int width, int[] counts, int[] lookup, int[] data, int startRow, int endRow, int[] colors) {
+            this.kernels = kernels;
+            this.width = width;
+            this.counts = counts;
+            this.lookup = lookup;
+            this.data = data;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.colors = colors;
+        }
+
+        protected void compute() {
+            if(endRow - startRow <= BAND_HEIGHT) {
+                colorRows(kernels, width, counts, lookup, data, startRow, endRow, colors);
+                return;
+            }
+            int mid = (startRow + endRow) >>> 1;
+            invokeAll(new RowBandTask(kernels, width, counts, lookup, data, startRow, mid, colors),
+                    new RowBandTask(kernels, width, counts, lookup, data, mid, endRow, colors));
+        }
+    }
+
+    private static long[] countStatistics(int[] counts, int from, int to) {
+        long min = Integer.MAX_VALUE, max = 0, sum = 0;
+        for(int i = from; i < to; i++) {
             sum += counts[i];
-            if(counts[i] > maxValue) {
-                maxValue = counts[i];
+            if(counts[i] > max) {
+                max = counts[i];
             }
             if(counts[i] < min) {
                 min = counts[i];
             }
         }
+        return new long[] {min, max, sum};
+    }
 
-        System.out.println("Min value: " + min);
-        System.out.println("Max value: " + maxValue);
-        System.out.println("Mean value: " + sum/((double)healpix.getNpix()));
-        ColorMap cm = ColorMap.getJet(256);
+    private static int[] getPalette(ColorMap cm) {
+        // Colors by index (int)(255 * count / maxValue); index 0, like the background, is white
+        int[] palette = new int[256];
+        palette[0] = (255<<16) | (255<<8) | 255;
+        for(int c = 1; c < palette.length; c++) {
+            palette[c] = cm.getColor(c);
+        }
+        return palette;
+    }
 
-        for(int i = 0; i < imageWidth; i++) {
-            for(int j = 0; j < imageHeight; j++) {
-                p = mapToWorld(new int[] {i, j});
-
-                ip = this.projection.inverseProjectThetaPhi(p[0], p[1]);
-                theta = ip[0];
-                phi = ip[1];
-
-                if(!Double.isNaN(theta) && !Double.isNaN(phi)) {
-                    //ipix = pixtools.ang2pix(phi, theta); // PixTools needs phi (angle from north pole) first, then theta (in-plane angle)
-                    ipix = healpix.ang2pix(new SphericalCoordinates(1, theta, phi));
-                    c = (int)(255 * ((double)counts[(int)ipix]/maxValue));
-                    if(c == 0) {
-                        col = white;
-                    }
-                    else {
-                        col = cm.getColor(c);
-                    }
-                    img.setRGB(i, j, col);
-                }
-                else {
-                    img.setRGB(i, j, white);
-                }
+    private static int getColor(int count, int maxValue, int[] palette) {
+        return palette[(int)(255 * ((double)count/maxValue))];
+    }
+
+    private int[] getColors(int maxValue) {
+        // Color of every count from 0 to maxValue, so that coloring a pixel is a table lookup instead of a division
+        int[] colors = new int[maxValue + 1];
+        for(int c = 0; c <= maxValue; c++) {
+            colors[c] = getColor(c, maxValue, palette);
+        }
+        return colors;
+    }
+
+    private static void colorRows(RenderKernels kernels, int width, int[] counts, int[] lookup, int[] data, int startRow, int endRow, int[] colors) {
+        // data is the pixel buffer of the image, row by row, in the same layout as the pixel lookup
+        kernels.colorPixels(counts, lookup, data, startRow * width, endRow * width, colors);
+    }
+
+    public BufferedImage renderFrame(FrameSnapshot frame) throws Exception {
+        BufferedImage img = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = img.createGraphics();
+        int[] data = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+
+        if(frame.getPixels() != null) {
+            // Colored during the snapshot by the incremental renderer
+            System.arraycopy(frame.getPixels(), 0, data, 0, data.length);
+            int maxValue = (int)frame.getStatistics()[1];
+            System.out.println("Min value: " + frame.getStatistics()[0]);
+            System.out.println("Max value: " + maxValue);
+            System.out.println("Mean value: " + frame.getStatistics()[2]/((double)getNpix()));
+            drawOverlay(img, g2d, frame, maxValue);
+            return img;
+        }
+
+        int[] lookup = displayNside != healpix.getNside() ? getDisplayLookup() : getPixelLookup();
+        int[] counts = frame.getCounts();
+        ForkJoinPool pool = renderPool;
+        long[] statistics = frame.getStatistics();
+        if(statistics == null) {
+            // Not known from the coverage histogram, e.g. for a coarser display nside
+            if(pool != null) {
+                statistics = pool.invoke(new StatisticsTask(counts, 0, counts.length));
+            }
+            else {
+                statistics = countStatistics(counts, 0, counts.length);
             }
         }
+        int maxValue = (int)statistics[1];
 
-        drawCoordinateGrid(g2d);
-        drawScale(img, g2d);
-        drawSun(g2d);
+        System.out.println("Min value: " + statistics[0]);
+        System.out.println("Max value: " + maxValue);
+        System.out.println("Mean value: " + statistics[2]/((double)counts.length));
 
+        int[] colors = getColors(maxValue);
+        if(pool != null) {
+            pool.invoke(new RowBandTask(kernels, imageWidth, counts, lookup, data, 0, imageHeight, colors));
+        }
+        else {
+            colorRows(kernels, imageWidth, counts, lookup, data, 0, imageHeight, colors);
+        }
+
+        drawOverlay(img, g2d, frame, maxValue);
+        return img;
+    }
+
+    private void drawOverlay(BufferedImage img, Graphics2D g2d, FrameSnapshot frame, int maxValue) {
+        // The parts that are the same for every frame come from the cached overlay; only the title,
+        // the maximum of the scale and the Sun and spin axis markers are drawn per frame
+        g2d.drawImage(getStaticOverlay(), 0, 0, null);
+        drawTitle(g2d, frame.getTime());
+        drawScaleLabel(g2d, maxValue);
+        drawSun(g2d, frame.getSunPosition(), frame.getPrecessionPosition());
+        g2d.dispose();
+    }
 
-        // Write the image to file
-        System.out.println("\nWriting file...");
+    private synchronized BufferedImage getStaticOverlay() {
+        // Coordinate grid with its labels, color scale and ecliptic on a transparent background, drawn once
+        if(staticOverlay == null) {
+            BufferedImage overlay = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g2d = overlay.createGraphics();
+            drawCoordinateGrid(g2d);
+            drawScale(overlay, g2d);
+            drawEcliptic(g2d);
+            g2d.dispose();
+            staticOverlay = overlay;
+        }
+        return staticOverlay;
+    }
+
+    public void setFrameSink(FrameSink frameSink) {
+        // Where frames go; by default one PNG file per frame in the output folder
+        this.frameSink = frameSink;
+    }
+
+    public FrameSink getFrameSink() {
+        return frameSink;
+    }
+
+    public void closeFrameSink() {
+        try {
+            frameSink.close();
+        }
+        catch(IOException e) {
+            System.out.println("Error: " + e);
+        }
+    }
+
+    public byte[] encodeFrame(BufferedImage img) throws IOException {
+        return frameSink.encode(img);
+    }
+
+    public void writeFrame(BufferedImage img, int n) {
+        try {
+            writeEncodedFrame(encodeFrame(img), n);
+        }
+        catch(IOException e) {
+            System.out.println("Error: " + e);
+        }
+    }
+
+    public void writeEncodedFrame(byte[] data, int n) {
+        // Frames must be written in order
+        System.out.println("\nWriting frame " + n + "...");
         try
         {
-            File f = new File(outputFolder + "frame" + String.format("%06d", n) + ".png");
-            boolean res = ImageIO.write(img, "png", f);
-            System.out.println("Written file: " + res);
+            frameSink.write(data, n);
+            System.out.println("Written frame: true");
         }
         catch(IOException e)
         {
@@ -194,7 +774,7 @@ public class HealPixDensityMapper {
     private void drawCoordinateGrid(Graphics2D g2d) {
         double longitude, latitude;
         double[] p1, p2;
-        int nx, ny, mp1[], mp2[];
+        int nx, ny;
 
         g2d.setColor(Color.lightGray);
         g2d.setStroke(new BasicStroke(1));
@@ -207,10 +787,8 @@ public class HealPixDensityMapper {
             for (int j = 0; j < ny; j++) {
                 latitude = -90 + j * 180.0 / ny;
                 p1 = projection.projectLongLat(longitude, latitude);
-                mp1 = worldToMap(p1);
                 p2 = projection.projectLongLat(longitude, latitude + 180.0 / ny);
-                mp2 = worldToMap(p2);
-                g2d.drawLine(mp1[0], mp1[1], mp2[0], mp2[1]);
+                drawSegment(g2d, p1, p2);
             }
         }
 
@@ -222,10 +800,8 @@ public class HealPixDensityMapper {
             for (int j = 0; j < ny; j++) {
                 latitude = -80 + j * 160.0 / (ny-1);
                 p1 = projection.projectLongLat(longitude, latitude);
-                mp1 = worldToMap(p1);
                 p2 = projection.projectLongLat(longitude + 360.0 / nx, latitude);
-                mp2 = worldToMap(p2);
-                g2d.drawLine(mp1[0], mp1[1], mp2[0], mp2[1]);
+                drawSegment(g2d, p1, p2);
             }
         }
 
@@ -236,20 +812,62 @@ public class HealPixDensityMapper {
         Font font = new Font("Sans", Font.PLAIN, 15);
         g2d.setFont(font);
         FontMetrics fm = g2d.getFontMetrics(g2d.getFont());
+        // Placed next to the projected poles and the 180 degree meridian on the equator, which for the Hammer
+        // projection are the top, bottom, left and right of the map; points hidden by the projection are not labeled
         String s = "90";
-        g2d.drawString(s, mapXOffset + mapWidth/2 - fm.stringWidth(s)/2, mapYOffset - textOffset);
+        int[] mp = projectLabel(0, 90);
+        if(mp != null) {
+            g2d.drawString(s, mp[0] - fm.stringWidth(s)/2, mp[1] - textOffset);
+        }
         s = "-90";
-        g2d.drawString(s, mapXOffset + mapWidth/2 - fm.stringWidth(s)/2, mapYOffset + mapHeight + fm.getAscent() + textOffset);
+        mp = projectLabel(0, -90);
+        if(mp != null) {
+            g2d.drawString(s, mp[0] - fm.stringWidth(s)/2, mp[1] + fm.getAscent() + textOffset);
+        }
         s = "180";
-        g2d.drawString(s, mapXOffset - fm.stringWidth(s) - textOffset, mapYOffset + mapHeight/2 + (fm.getAscent() - fm.getDescent())/2);
+        mp = projectLabel(180, 0);
+        if(mp != null) {
+            g2d.drawString(s, mp[0] - fm.stringWidth(s) - textOffset, mp[1] + (fm.getAscent() - fm.getDescent())/2);
+        }
         s = "-180";
-        g2d.drawString(s, mapXOffset + mapWidth + textOffset, mapYOffset + mapHeight/2 + (fm.getAscent() - fm.getDescent())/2);
+        mp = projectLabel(-180, 0);
+        if(mp != null) {
+            g2d.drawString(s, mp[0] + textOffset, mp[1] + (fm.getAscent() - fm.getDescent())/2);
+        }
 
         // Name
         g2d.drawString("Roel Zinkstok", mapXOffset, imageHeight - mapYOffset);
+    }
+
+    private int[] projectLabel(double longitude, double latitude) {
+        double[] p = projection.projectLongLat(longitude, latitude);
+        if(Double.isNaN(p[0]) || Double.isNaN(p[1])) {
+            return null;
+        }
+        return worldToMap(p);
+    }
+
+    private void drawSegment(Graphics2D g2d, double[] p1, double[] p2) {
+        // Skips segments with an end point hidden by the projection, and segments that jump across the map
+        // where a projection is not continuous, like the equator between the two caps of LambertPolarProjection
+        if(Double.isNaN(p1[0]) || Double.isNaN(p1[1]) || Double.isNaN(p2[0]) || Double.isNaN(p2[1])) {
+            return;
+        }
+        int[] mp1 = worldToMap(p1);
+        int[] mp2 = worldToMap(p2);
+        if(Math.abs(mp1[0] - mp2[0]) + Math.abs(mp1[1] - mp2[1]) > mapWidth/32) {
+            return;
+        }
+        g2d.drawLine(mp1[0], mp1[1], mp2[0], mp2[1]);
+    }
 
-        // Title
-        font = new Font("Sans", Font.PLAIN, 25);
+    private void drawTitle(Graphics2D g2d, double time) {
+        String s;
+        g2d.setColor(Color.black);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        // The title is positioned with the metrics of the label font
+        FontMetrics fm = g2d.getFontMetrics(new Font("Sans", Font.PLAIN, 15));
+        Font font = new Font("Sans", Font.PLAIN, 25);
         g2d.setFont(font);
 
         int y = (int)(time/365.25);
@@ -262,16 +880,23 @@ public class HealPixDensityMapper {
         else {
             s = String.format("NSL field transits in ICRS after: %d years %03d days", y, d);
         }
+        g2d.drawString(s, getTitleOffset(fm), mapYOffset - 50);
+    }
+
+    private synchronized int getTitleOffset(FontMetrics fm) {
+        // Center the title as it reads at the start of the mission, and keep it there so it does not jump around
+        // Fixed up front, so it does not depend on the order in which frames are rendered
         if(titleOffset == 0) {
+            String s = String.format("NSL field transits in ICRS after: %d years %03d days %02d hr %02d min", 0, 0, 0, 0);
             titleOffset = mapXOffset + mapWidth/2 - fm.stringWidth(s)/2;
         }
-        g2d.drawString(s, titleOffset, mapYOffset - 50);
+        return titleOffset;
     }
 
     private void drawScale(BufferedImage img, Graphics2D g2d) {
         int width = 25;
         int height = mapHeight;
-        int startx = 2*mapXOffset + mapWidth + 100;
+        int startx = getScaleX();
         int starty = mapYOffset;
         int textOffset = 10;
         int col;
@@ -279,7 +904,8 @@ public class HealPixDensityMapper {
         ColorMap cm = ColorMap.getJet(256);
 
         for(int i=0; i<height; i++) {
-            col = cm.getColor((int)(255 - 255 * ((double)i)/height));
+            // Opaque, since the scale is drawn into the transparent overlay
+            col = 0xFF000000 | cm.getColor((int)(255 - 255 * ((double)i)/height));
             for(int j=0;j<width; j++) {
                 img.setRGB(startx + j, starty + i, col);
             }
@@ -294,16 +920,28 @@ public class HealPixDensityMapper {
         Font font = new Font("Sans", Font.PLAIN, 15);
         g2d.setFont(font);
         FontMetrics fm = g2d.getFontMetrics(g2d.getFont());
-        s = String.format("%d", maxValue);
-        g2d.drawString(s, startx - fm.stringWidth(s) - textOffset, starty + (fm.getAscent() - fm.getDescent())/2);
         s = "0";
         g2d.drawString(s, startx - fm.stringWidth(s) - textOffset, starty + height + (fm.getAscent() - fm.getDescent())/2);
     }
 
-    private void drawSun(Graphics2D g2d) {
+    private int getScaleX() {
+        return 2*mapXOffset + mapWidth + 100;
+    }
+
+    private void drawScaleLabel(Graphics2D g2d, int maxValue) {
+        int textOffset = 10;
+        g2d.setColor(Color.black);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Font font = new Font("Sans", Font.PLAIN, 15);
+        g2d.setFont(font);
+        FontMetrics fm = g2d.getFontMetrics(g2d.getFont());
+        String s = String.format("%d", maxValue);
+        g2d.drawString(s, getScaleX() - fm.stringWidth(s) - textOffset, mapYOffset + (fm.getAscent() - fm.getDescent())/2);
+    }
+
+    private void drawEcliptic(Graphics2D g2d) {
         double[] worldPoint1, worldPoint2;
-        int[] mapPoint1, mapPoint2;
-        int size, nx = 1000;
+        int nx = 1000;
         double longitude1, latitude1, longitude2, latitude2;
 
         // Ecliptic
@@ -320,25 +958,37 @@ public class HealPixDensityMapper {
 
             worldPoint1 = projection.projectLongLat(longitude1, latitude1);
             worldPoint2 = projection.projectLongLat(longitude2, latitude2);
-            mapPoint1 = worldToMap(worldPoint1);
-            mapPoint2 = worldToMap(worldPoint2);
-            g2d.drawLine(mapPoint1[0], mapPoint1[1], mapPoint2[0], mapPoint2[1]);
+            drawSegment(g2d, worldPoint1, worldPoint2);
         }
+    }
+
+    private void drawSun(Graphics2D g2d, SphericalCoordinates sunPosition, SphericalCoordinates precessionPosition) {
+        double[] worldPoint1;
+        int[] mapPoint1;
+        int size;
+
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setStroke(new BasicStroke(2));
 
         // Sun
+        // Markers on the hidden side of the projection are not drawn
         worldPoint1 = projection.projectThetaPhi(sunPosition.getTheta(), sunPosition.getPhi());
-        mapPoint1 = worldToMap(worldPoint1);
-        size = 25;
-        g2d.setColor(Color.yellow);
-        g2d.fillOval(mapPoint1[0] - size/2, mapPoint1[1] - size/2, size, size);
-        g2d.setColor(Color.black);
-        g2d.drawOval(mapPoint1[0] - size/2, mapPoint1[1] - size/2, size, size);
+        if(!Double.isNaN(worldPoint1[0])) {
+            mapPoint1 = worldToMap(worldPoint1);
+            size = 25;
+            g2d.setColor(Color.yellow);
+            g2d.fillOval(mapPoint1[0] - size/2, mapPoint1[1] - size/2, size, size);
+            g2d.setColor(Color.black);
+            g2d.drawOval(mapPoint1[0] - size/2, mapPoint1[1] - size/2, size, size);
+        }
 
         // Spin axis
         worldPoint1 = projection.projectThetaPhi(precessionPosition.getTheta(), precessionPosition.getPhi());
-        mapPoint1 = worldToMap(worldPoint1);
-        size = 12;
-        g2d.setColor(Color.black);
-        g2d.fillOval(mapPoint1[0] - size/2, mapPoint1[1] - size/2, size, size);
+        if(!Double.isNaN(worldPoint1[0])) {
+            mapPoint1 = worldToMap(worldPoint1);
+            size = 12;
+            g2d.setColor(Color.black);
+            g2d.fillOval(mapPoint1[0] - size/2, mapPoint1[1] - size/2, size, size);
+        }
     }
 }
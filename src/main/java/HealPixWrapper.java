@@ -11,6 +11,7 @@ public class HealPixWrapper {
     // Simple wrapper for HealPixBase
     // Works with Apache commons math Vector3D and SphericalCoordinates
     private HealpixBase h;
+    private Scheme scheme;
     private int nside;
     private long npix;
     private boolean debug;
@@ -21,6 +22,7 @@ public class HealPixWrapper {
 
     public HealPixWrapper(int nside, Scheme scheme_in, boolean debug) throws Exception {
         h = new HealpixBase(nside, scheme_in);
+        this.scheme = scheme_in;
         this.nside = nside;
         this.npix = h.getNpix();
         this.debug = debug;
@@ -34,6 +36,10 @@ public class HealPixWrapper {
         return nside;
     }
 
+    public Scheme getScheme() {
+        return scheme;
+    }
+
     public long vect2pix(Vector3D v) throws Exception {
         Vec3 vv = new Vec3(v.getX(), v.getY(), v.getZ());
         return h.vec2pix(vv);
@@ -44,6 +50,19 @@ public class HealPixWrapper {
         return new Vector3D(vv.x, vv.y, vv.z);
     }
 
+    public void pix2vect(long pix, double[] v) throws Exception {
+        // Unit vector of the pixel center written into v as {x, y, z}
+        Vec3 vv = h.pix2vec(pix);
+        v[0] = vv.x;
+        v[1] = vv.y;
+        v[2] = vv.z;
+    }
+
+    public long ring2nest(long pix) throws Exception {
+        // NESTED index of the RING pixel pix, whatever the scheme of this wrapper
+        return h.ring2nest(pix);
+    }
+
     public long ang2pix(SphericalCoordinates sc) throws Exception {
         // SC: theta is polar angle, phi is angle from north pole
         // Pointing: phi is polar angle, theta is angle from north pole
@@ -52,6 +71,11 @@ public class HealPixWrapper {
         return h.ang2pix(p);
     }
 
+    public long ang2pix(double theta, double phi) throws Exception {
+        // Same as ang2pix(new SphericalCoordinates(1, theta, phi)), without computing the cartesian coordinates
+        return h.ang2pix(new Pointing(phi, theta));
+    }
+
     public SphericalCoordinates pix2ang(long pix) throws Exception {
         // Pointing: phi is polar angle, theta is angle from north pole
         // SC: theta is polar angle, phi is angle from north pole
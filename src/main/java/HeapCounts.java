@@ -0,0 +1,70 @@
+public class HeapCounts implements CountsStore {
+    // Counts in a short[] (unsigned, up to 65535), replaced by an int[] when a count would overflow
+    public static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+    private static final int SHORT_MAX = 0xFFFF;
+
+    private short[] shorts;
+    private int[] ints;
+    private int size;
+
+    public HeapCounts(int size) {
+        this(size, false);
+    }
+
+    public HeapCounts(int size, boolean wide) {
+        // wide starts with int counts right away
+        this.size = size;
+        if(wide) {
+            ints = new int[size];
+        }
+        else {
+            shorts = new short[size];
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int getBytesPerCount() {
+        return ints != null ? 4 : 2;
+    }
+
+    public int get(long i) {
+        if(ints != null) {
+            return ints[(int)i];
+        }
+        return shorts[(int)i] & SHORT_MAX;
+    }
+
+    public int increment(long i) {
+        if(ints != null) {
+            return ++ints[(int)i];
+        }
+        if(shorts[(int)i] == (short)SHORT_MAX) {
+            promote();
+            return ++ints[(int)i];
+        }
+        return ++shorts[(int)i] & SHORT_MAX;
+    }
+
+    public void set(long i, int value) {
+        if(ints == null && (value < 0 || value > SHORT_MAX)) {
+            promote();
+        }
+        if(ints != null) {
+            ints[(int)i] = value;
+        }
+        else {
+            shorts[(int)i] = (short)value;
+        }
+    }
+
+    private void promote() {
+        ints = new int[size];
+        for(int i = 0; i < size; i++) {
+            ints[i] = shorts[i] & SHORT_MAX;
+        }
+        shorts = null;
+    }
+}
@@ -0,0 +1,106 @@
+public class LambertPolarProjection implements Projection {
+    // Lambert azimuthal equal-area projection of both hemispheres: the northern cap is centered on the north pole
+    // in the left disk, the southern cap on the south pole in the right disk; each disk has radius sqrt(2) and
+    // ends at the equator, so together they have the same extent as the Hammer projection
+    // The southern disk is the mirror image of the northern one, so that both caps touch at the same point of the
+    // equator and longitude 0 points down in both
+    private double centerTheta;
+    private int longitudeSign;
+    private double radius;
+    private double[] xRange;
+    private double[] yRange;
+
+    // centerLongitude is supplied in degrees
+    public LambertPolarProjection(double centerLongitude) {
+        this(centerLongitude, false);
+    }
+
+    public LambertPolarProjection(double centerLongitude, boolean invertLongitude) {
+        this.centerTheta = Math.toRadians(centerLongitude);
+        this.longitudeSign = invertLongitude ? -1 : 1;
+        this.radius = Math.sqrt(2);
+        this.xRange = new double[] {-2 * radius, 2 * radius};
+        this.yRange = new double[] {-radius, radius};
+    }
+
+    public double getCenterLongitude() {
+        return Math.toDegrees(centerTheta);
+    }
+
+    private void project(double theta, double phi, double[] x, int xIndex, double[] y, int yIndex) {
+        double longitude = longitudeSign * Projection.reduceTheta(theta - centerTheta);
+        double sl = Math.sin(longitude);
+        double cl = Math.cos(longitude);
+        if(phi <= Math.PI/2.0) {
+            double rho = 2 * Math.sin(0.5 * phi);
+            x[xIndex] = -radius + rho * sl;
+            y[yIndex] = -rho * cl;
+        }
+        else {
+            double rho = 2 * Math.sin(0.5 * (Math.PI - phi));
+            x[xIndex] = radius - rho * sl;
+            y[yIndex] = -rho * cl;
+        }
+    }
+
+    private void inverseProject(double x, double y, double[] theta, int thetaIndex, double[] phi, int phiIndex) {
+        boolean north = x < 0;
+        double dx = north ? x + radius : x - radius;
+        double rho2 = dx * dx + y * y;
+        if(rho2 > radius * radius) {
+            theta[thetaIndex] = Double.NaN;
+            phi[phiIndex] = Double.NaN;
+            return;
+        }
+        // Angular distance from the pole of the disk
+        double distance = 2 * Math.asin(0.5 * Math.sqrt(rho2));
+        double longitude = north ? Math.atan2(dx, -y) : Math.atan2(-dx, -y);
+        theta[thetaIndex] = longitudeSign * longitude + centerTheta;
+        phi[phiIndex] = north ? distance : Math.PI - distance;
+    }
+
+    // Project using longitude and latitude in degrees
+    public double[] projectLongLat(double longitude, double latitude) {
+        return projectThetaPhi(Math.toRadians(longitude), Math.toRadians(90.0 - latitude));
+    }
+
+    // Project using theta (angle around equator) and phi (angle from north pole) in radians
+    public double[] projectThetaPhi(double theta, double phi) {
+        double[] res = new double[2];
+        project(theta, phi, res, 0, res, 1);
+        return res;
+    }
+
+    public void projectThetaPhi(double[] theta, double[] phi, int inOffset, double[] x, double[] y, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            project(theta[inOffset + i], phi[inOffset + i], x, outOffset + i, y, outOffset + i);
+        }
+    }
+
+    // Inverse project to longitude and latitude in degrees
+    public double[] inverseProjectLongLat(double x, double y) {
+        double[] thetaPhi = inverseProjectThetaPhi(x, y);
+        return new double[] {Math.toDegrees(thetaPhi[0]), Math.toDegrees(Math.PI/2.0 - thetaPhi[1])};
+    }
+
+    // Inverse project to theta and phi in radians
+    public double[] inverseProjectThetaPhi(double x, double y) {
+        double[] res = new double[2];
+        inverseProject(x, y, res, 0, res, 1);
+        return res;
+    }
+
+    public void inverseProjectThetaPhi(double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            inverseProject(x[inOffset + i], y[inOffset + i], theta, outOffset + i, phi, outOffset + i);
+        }
+    }
+
+    public double[] getXRange() {
+        return xRange.clone();
+    }
+
+    public double[] getYRange() {
+        return yRange.clone();
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import healpix.essentials.RangeSet;
+
+
+public class MissionCheckpoint {
+    // State of a running mission, from which it can be resumed
+    // Checkpoints are written alternately to two files, path.0 and path.1, so that a crash while writing one of them
+    // leaves the other intact. Binary layout (little endian):
+    //   int magic, int version, int complete, int nranges, long npix, int step, int frameNumber,
+    //   double t, double nu, double omega, double startTime,
+    //   int[npix] counts, long[2 * nranges] begin and end of the pixel ranges covered in the last step
+    // The counts are copied between the CountsStore and the file in chunks of CHUNK_SIZE values, so npix is not
+    // limited to 2^31 and no int[] copy of the counts is made; files of version 1 (int npix) are not read
+    private static final int MAGIC = 0x4E534C43;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    static final int CHUNK_SIZE = 1 << 20;
+
+    private double t;
+    private double nu;
+    private double omega;
+    private double startTime;
+    private int step;
+    private int frameNumber;
+    private CountsStore counts;
+    private RangeSet lastStepPixels;
+
+    public MissionCheckpoint(double t, double nu, double omega, double startTime, int step, int frameNumber, CountsStore counts, RangeSet lastStepPixels) {
+        // counts is used directly, not copied, so the checkpoint must be written before the counts change
+        this.t = t;
+        this.nu = nu;
+        this.omega = omega;
+        this.startTime = startTime;
+        this.step = step;
+        this.frameNumber = frameNumber;
+        this.counts = counts;
+        this.lastStepPixels = lastStepPixels;
+    }
+
+    public double getT() {
+        return t;
+    }
+
+    public double getNu() {
+        return nu;
+    }
+
+    public double getOmega() {
+        return omega;
+    }
+
+    public double getStartTime() {
+        return startTime;
+    }
+
+    // Number of steps handled before the checkpoint was taken
+    public int getStep() {
+        return step;
+    }
+
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    public CountsStore getCounts() {
+        return counts;
+    }
+
+    public RangeSet getLastStepPixels() {
+        return lastStepPixels;
+    }
+
+    static long size(long npix, int nranges) {
+        return HEADER_SIZE + 4L * npix + 16L * nranges;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while(buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if(n < 0) {
+                throw new IOException("Checkpoint file ends early");
+            }
+            position += n;
+        }
+        buffer.flip();
+    }
+
+    static void write(FileChannel channel, ByteBuffer buffer, MissionCheckpoint c) throws IOException {
+        // buffer is scratch space of at least 4 * CHUNK_SIZE bytes
+        buffer.clear();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        RangeSet pixels = c.lastStepPixels;
+        long npix = c.counts.size();
+
+        // Mark the checkpoint incomplete until all data is on disk
+        buffer.putInt(0);
+        writeFully(channel, buffer, 8);
+        channel.force(false);
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(0);
+        buffer.putInt(pixels.nranges());
+        buffer.putLong(npix);
+        buffer.putInt(c.step);
+        buffer.putInt(c.frameNumber);
+        buffer.putDouble(c.t);
+        buffer.putDouble(c.nu);
+        buffer.putDouble(c.omega);
+        buffer.putDouble(c.startTime);
+        writeFully(channel, buffer, 0);
+
+        for(long i = 0; i < npix; i += CHUNK_SIZE) {
+            long end = Math.min(npix, i + CHUNK_SIZE);
+            for(long k = i; k < end; k++) {
+                buffer.putInt(c.counts.get(k));
+            }
+            writeFully(channel, buffer, HEADER_SIZE + 4 * i);
+        }
+        long position = HEADER_SIZE + 4 * npix;
+        for(int i = 0; i < pixels.nranges(); i++) {
+            buffer.putLong(pixels.ivbegin(i));
+            buffer.putLong(pixels.ivend(i));
+            if(buffer.remaining() < 16 || i == pixels.nranges() - 1) {
+                int n = buffer.position();
+                writeFully(channel, buffer, position);
+                position += n;
+            }
+        }
+        channel.force(false);
+
+        buffer.putInt(1);
+        writeFully(channel, buffer, 8);
+        channel.force(false);
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        // Header of a complete checkpoint, or null if the file is not one
+        if(channel.size() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0, HEADER_SIZE);
+        if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != 1) {
+            return null;
+        }
+        if(channel.size() < size(header.getLong(16), header.getInt(12))) {
+            return null;
+        }
+        return header;
+    }
+
+    static int readStep(Path file) throws IOException {
+        // Step of the checkpoint in file, -1 if there is no complete checkpoint
+        if(!Files.exists(file)) {
+            return -1;
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            return header == null ? -1 : header.getInt(24);
+        }
+    }
+
+    private static MissionCheckpoint readFile(Path file) throws IOException {
+        if(!Files.exists(file)) {
+            return null;
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if(header == null) {
+                return null;
+            }
+            int nranges = header.getInt(12);
+            long npix = header.getLong(16);
+
+            CountsStore counts = CountsStore.create(npix);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(4 * CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for(long i = 0; i < npix; i += CHUNK_SIZE) {
+                long end = Math.min(npix, i + CHUNK_SIZE);
+                readFully(channel, buffer, HEADER_SIZE + 4 * i, (int)(4 * (end - i)));
+                for(long k = i; k < end; k++) {
+                    counts.set(k, buffer.getInt());
+                }
+            }
+            RangeSet pixels = new RangeSet();
+            ByteBuffer ranges = ByteBuffer.allocate(16 * nranges).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, ranges, HEADER_SIZE + 4 * npix, 16 * nranges);
+            for(int i = 0; i < nranges; i++) {
+                long begin = ranges.getLong();
+                long end = ranges.getLong();
+                pixels.append(begin, end);
+            }
+
+            return new MissionCheckpoint(header.getDouble(32), header.getDouble(40), header.getDouble(48), header.getDouble(56),
+                    header.getInt(24), header.getInt(28), counts, pixels);
+        }
+    }
+
+    public static MissionCheckpoint read(String path) throws IOException {
+        // Returns the most recent complete checkpoint, or null if there is none
+        path = FilePaths.expand(path);
+        MissionCheckpoint c0 = readFile(Paths.get(path + ".0"));
+        MissionCheckpoint c1 = readFile(Paths.get(path + ".1"));
+        if(c0 == null) {
+            return c1;
+        }
+        if(c1 == null || c0.step >= c1.step) {
+            return c0;
+        }
+        return c1;
+    }
+}
@@ -0,0 +1,115 @@
+public class MollweideProjection implements Projection {
+    // Equal-area projection of the whole sky onto an ellipse with the same extent as the Hammer projection
+    // The forward projection needs Newton iteration for the auxiliary angle, but the inverse, which is what the
+    // screen to HealPix lookup uses, is in closed form
+    private static final int MAX_ITERATIONS = 30;
+
+    private double centerTheta;
+    private int longitudeSign;
+    private double scale;
+    private double[] xRange;
+    private double[] yRange;
+
+    // centerLongitude is supplied in degrees
+    public MollweideProjection(double centerLongitude) {
+        this(centerLongitude, false);
+    }
+
+    public MollweideProjection(double centerLongitude, boolean invertLongitude) {
+        this.centerTheta = Math.toRadians(centerLongitude);
+        this.longitudeSign = invertLongitude ? -1 : 1;
+        this.scale = Math.sqrt(2);
+        this.xRange = new double[] {-2 * scale, 2 * scale};
+        this.yRange = new double[] {-scale, scale};
+    }
+
+    public double getCenterLongitude() {
+        return Math.toDegrees(centerTheta);
+    }
+
+    private static double auxiliaryAngle(double latitude) {
+        // Solves a + sin(a) = PI sin(latitude) for a = 2 * auxiliary angle
+        // The function is concave on 0..PI, so Newton converges monotonically; near the poles the derivative vanishes
+        // and the start value comes from the cubic expansion a + sin(a) = PI - (PI - a)^3/6
+        double k = Math.PI * Math.sin(latitude);
+        double a = Math.copySign(Math.PI - Math.cbrt(6 * (Math.PI - Math.abs(k))), k);
+        for(int i = 0; i < MAX_ITERATIONS; i++) {
+            double derivative = 1 + Math.cos(a);
+            if(derivative == 0) {
+                break;
+            }
+            double delta = (a + Math.sin(a) - k) / derivative;
+            a -= delta;
+            if(Math.abs(delta) < 1e-13) {
+                break;
+            }
+        }
+        return 0.5 * a;
+    }
+
+    private void project(double theta, double phi, double[] x, int xIndex, double[] y, int yIndex) {
+        double longitude = longitudeSign * Projection.reduceTheta(theta - centerTheta);
+        double aux = auxiliaryAngle(Math.PI/2.0 - phi);
+        x[xIndex] = 2 * scale / Math.PI * longitude * Math.cos(aux);
+        y[yIndex] = scale * Math.sin(aux);
+    }
+
+    private void inverseProject(double x, double y, double[] theta, int thetaIndex, double[] phi, int phiIndex) {
+        if(x * x / (4.0 * scale * scale) + y * y / (scale * scale) > 1.0) {
+            theta[thetaIndex] = Double.NaN;
+            phi[phiIndex] = Double.NaN;
+            return;
+        }
+        double aux = Math.asin(Math.max(-1.0, Math.min(1.0, y / scale)));
+        double cos = Math.cos(aux);
+        double longitude = cos > 0 ? Math.PI * x / (2 * scale * cos) : 0.0;
+        double latitude = Math.asin(Math.max(-1.0, Math.min(1.0, (2 * aux + Math.sin(2 * aux)) / Math.PI)));
+        theta[thetaIndex] = longitudeSign * longitude + centerTheta;
+        phi[phiIndex] = Math.PI/2.0 - latitude;
+    }
+
+    // Project using longitude and latitude in degrees
+    public double[] projectLongLat(double longitude, double latitude) {
+        return projectThetaPhi(Math.toRadians(longitude), Math.toRadians(90.0 - latitude));
+    }
+
+    // Project using theta (angle around equator) and phi (angle from north pole) in radians
+    public double[] projectThetaPhi(double theta, double phi) {
+        double[] res = new double[2];
+        project(theta, phi, res, 0, res, 1);
+        return res;
+    }
+
+    public void projectThetaPhi(double[] theta, double[] phi, int inOffset, double[] x, double[] y, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            project(theta[inOffset + i], phi[inOffset + i], x, outOffset + i, y, outOffset + i);
+        }
+    }
+
+    // Inverse project to longitude and latitude in degrees
+    public double[] inverseProjectLongLat(double x, double y) {
+        double[] thetaPhi = inverseProjectThetaPhi(x, y);
+        return new double[] {Math.toDegrees(thetaPhi[0]), Math.toDegrees(Math.PI/2.0 - thetaPhi[1])};
+    }
+
+    // Inverse project to theta and phi in radians
+    public double[] inverseProjectThetaPhi(double x, double y) {
+        double[] res = new double[2];
+        inverseProject(x, y, res, 0, res, 1);
+        return res;
+    }
+
+    public void inverseProjectThetaPhi(double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            inverseProject(x[inOffset + i], y[inOffset + i], theta, outOffset + i, phi, outOffset + i);
+        }
+    }
+
+    public double[] getXRange() {
+        return xRange.clone();
+    }
+
+    public double[] getYRange() {
+        return yRange.clone();
+    }
+}
@@ -10,14 +10,18 @@ public class NSLIntegrator implements FirstOrderDifferentialEquations {
     private double sksi;
     private double S2;
 
-    public NSLIntegrator(double S, double ksi, double omegaz) {
+    public NSLIntegrator(double S, double ksi, double omegaz, Sun sun) {
         this.S = S;
         this.S2 = S*S;
         this.ksi = ksi;
         this.cksi = Math.cos(ksi);
         this.sksi = Math.sin(ksi);
         this.omegaz = omegaz;
-        this.sun = new Sun();
+        this.sun = sun;
+    }
+
+    public NSLIntegrator(double S, double ksi, double omegaz) {
+        this(S, ksi, omegaz, new Sun());
     }
 
     public int getDimension() {
@@ -26,7 +30,7 @@ public class NSLIntegrator implements FirstOrderDifferentialEquations {
 
     public void computeDerivatives(double t, double[] y, double[] yDot) {
         // Y is (nu, omega)
-        double sal_dot = sun.apparentLongitude(t)[2];
+        double sal_dot = sun.solarLongitudeRate(t);
 
         yDot[0] = sal_dot * (Math.sqrt(S2 - Math.cos(y[0]) * Math.cos(y[0])) + cksi * Math.sin(y[0])) / sksi;
         yDot[1] = omegaz - yDot[0] * cksi - sal_dot * sksi * Math.sin(y[0]);
@@ -1,34 +1,51 @@
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.commons.math3.ode.sampling.FixedStepHandler;
 import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
-import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
 
 class NSLStepHandler implements FixedStepHandler {
     boolean continuous;
     AttitudeCalculator attitudeCalculator;
     private Sun sun;
-    private double[] ts;
-    private double[] solarLongitudes;
-    private double[] nus;
-    private double[] omegas;
-    private SphericalCoordinates sunDirection[];
-    private SphericalCoordinates precessionAxis[];
-    private SphericalCoordinates scanDirection[];
+    private AttitudeBuffer history;
+    private double startTime;
     private int current;
-    private int nSteps;
     private int framenumber;
     private HealPixDensityMapper h;
+    private FramePipeline pipeline;
+    private int renderThreads;
+    private int maxPendingFrames;
+    private CheckpointWriter checkpointWriter;
+    private int checkpointInterval;
+    private boolean resuming;
+    private AttitudeFileWriter attitudeWriter;
+    private double[] attitude = new double[4];
+    private double resumeTime;
 
 
 
     public NSLStepHandler(int nSteps, double solarAspectAngle, String outputFolder, boolean continuous) {
+        // Keeps the attitude history of the whole mission
+        this(solarAspectAngle, outputFolder, continuous, new AttitudeBuffer(nSteps));
+    }
+
+    public NSLStepHandler(double solarAspectAngle, String outputFolder, boolean continuous, AttitudeBuffer history) {
+        // Streaming mode: only the most recent history.getCapacity() attitude samples are kept,
+        // so memory use does not depend on the mission length or step size
+        this(solarAspectAngle, outputFolder, continuous, history, new HammerProjection(0, true));
+    }
+
+    public NSLStepHandler(double solarAspectAngle, String outputFolder, boolean continuous, AttitudeBuffer history, Projection projection) {
+        // Frames are drawn with the given projection; the frame time does not depend on it, since every projection
+        // is only used once, to build the screen to HealPix lookup and the static overlay
         this.continuous = continuous;
-        this.nSteps = nSteps;
+        this.history = history;
         attitudeCalculator = new AttitudeCalculator(solarAspectAngle);
         sun = new Sun();
-        Projection hp = new HammerProjection(0, true);
         try {
-            h = new HealPixDensityMapper(1920, 1080, 1600, 800, hp, 512, outputFolder);
+            h = new HealPixDensityMapper(1920, 1080, 1600, 800, projection, 512, outputFolder);
         }
         catch(Exception e) {
             System.out.println("Error: " + e);
@@ -41,25 +58,30 @@ class NSLStepHandler implements FixedStepHandler {
     }
 
     public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
-        ts[current] = t;
-        double relativeT = t - ts[0];
-        nus[current] = y[0];
-        omegas[current] = y[1];
-        solarLongitudes[current] = sun.apparentLongitude(t)[1];
-
-        SphericalCoordinates[] scs = attitudeCalculator.calculateDirections(solarLongitudes[current], nus[current], omegas[current]);
-        sunDirection[current] = scs[0];
-        precessionAxis[current] = scs[1];
-        scanDirection[current] = scs[2];
-        h.nextStep(relativeT, sunDirection[current], precessionAxis[current]);
-
-        Vector3D[][] fovs = attitudeCalculator.calculateFoVs();
-        try {
-            h.addRectangularArea(fovs[0]);
-            h.addRectangularArea(fovs[1]);
+        // When resuming, the integration starts at the step of the checkpoint, which has already been handled
+        if(resuming) {
+            resuming = false;
+            if(t == resumeTime) {
+                return;
+            }
         }
-        catch(Exception e) {
-            System.out.println("Error: " + e);
+        if(current == 0) {
+            startTime = t;
+        }
+        double relativeT = t - startTime;
+        double solarLongitude = sun.solarLongitude(t);
+
+        SphericalCoordinates[] scs = h.scanStep(attitudeCalculator, relativeT, solarLongitude, y[0], y[1]);
+        history.add(t, solarLongitude, y[0], y[1], scs[0].getTheta(), scs[0].getPhi(),
+                scs[1].getTheta(), scs[1].getPhi(), scs[2].getTheta(), scs[2].getPhi());
+        if(attitudeWriter != null) {
+            attitudeCalculator.getAttitudeQuaternion(attitude);
+            try {
+                attitudeWriter.write(t, y[0], y[1], solarLongitude, attitude);
+            }
+            catch(IOException e) {
+                System.out.println("Error: " + e);
+            }
         }
 
         boolean draw = false;
@@ -87,23 +109,208 @@ class NSLStepHandler implements FixedStepHandler {
             framenumber += 1;
         }
         current += 1;
+
+        if(checkpointWriter != null && current % checkpointInterval == 0) {
+            // The checkpoint tells a resumed run where to continue the frame numbers and the attitude file,
+            // so everything before it must be on disk first
+            drainFrames();
+            syncAttitudeOutput();
+            writeCheckpoint(new MissionCheckpoint(t, y[0], y[1], startTime, current, framenumber, h.getCountsStore(), h.getCurrentPixels()));
+        }
+
+        if(isLast) {
+            finish();
+        }
+    }
+
+    public void finish() {
+        // Write the remaining frames and attitude rows and close the outputs; does nothing when already finished
+        finishRendering();
+        h.closeFrameSink();
+        finishAttitudeOutput();
+    }
+
+    public void enableAsyncRendering(int nThreads, int maxPendingFrames) {
+        // Render and write frames in the background, so that integration does not wait for them
+        finishRendering();
+        this.renderThreads = nThreads;
+        this.maxPendingFrames = maxPendingFrames;
+        pipeline = new FramePipeline(h, renderThreads, maxPendingFrames);
+    }
+
+    public void enableAttitudeOutput(String path, long capacity) throws IOException {
+        // Write t, nu, omega, the solar longitude and the attitude quaternion of every step to an attitude file,
+        // which can be read with AttitudeFileReader; capacity is the maximum number of steps
+        finishAttitudeOutput();
+        attitudeWriter = new AttitudeFileWriter(path, capacity);
+    }
+
+    public void resumeAttitudeOutput(String path, long rows) throws IOException {
+        // Continue the attitude file of an earlier run after its first rows rows, e.g. the step of a checkpoint
+        finishAttitudeOutput();
+        attitudeWriter = AttitudeFileWriter.append(path, rows);
+    }
+
+    private void syncAttitudeOutput() {
+        if(attitudeWriter != null) {
+            try {
+                attitudeWriter.sync();
+            }
+            catch(IOException e) {
+                System.out.println("Error: " + e);
+            }
+        }
+    }
+
+    public void finishAttitudeOutput() {
+        if(attitudeWriter != null) {
+            try {
+                attitudeWriter.close();
+            }
+            catch(IOException e) {
+                System.out.println("Error: " + e);
+            }
+            attitudeWriter = null;
+        }
+    }
+
+    public void enableCheckpoints(String path, int interval) {
+        // Write a checkpoint every interval steps, from which the mission can be resumed with restore
+        // Before each checkpoint the asynchronous rendering pipeline is drained, so a resumed run continues the
+        // frame numbers without gaps
+        checkpointWriter = new CheckpointWriter(path);
+        checkpointInterval = interval;
+    }
+
+    private void writeCheckpoint(MissionCheckpoint checkpoint) {
+        try {
+            checkpointWriter.write(checkpoint);
+        }
+        catch(IOException e) {
+            System.out.println("Error: " + e);
+        }
+    }
+
+    public void restore(MissionCheckpoint checkpoint) {
+        // Continue after the step at which the checkpoint was taken
+        startTime = checkpoint.getStartTime();
+        current = checkpoint.getStep();
+        framenumber = checkpoint.getFrameNumber();
+        h.restore(checkpoint.getCounts(), checkpoint.getLastStepPixels());
+        resuming = true;
+        resumeTime = checkpoint.getT();
+
+        if(checkpointWriter != null) {
+            try {
+                checkpointWriter.resume(checkpoint);
+            }
+            catch(IOException e) {
+                System.out.println("Error: " + e);
+            }
+        }
+    }
+
+    public void clearCheckpoints() {
+        // Remove the checkpoints of an earlier run before starting a new one; not done by reset, so that
+        // resuming never deletes the checkpoint it resumes from
+        if(checkpointWriter != null) {
+            try {
+                checkpointWriter.clear();
+            }
+            catch(IOException e) {
+                System.out.println("Error: " + e);
+            }
+        }
+    }
+
+    public void setParallelRendering(ForkJoinPool pool) {
+        // Split each frame into row bands that are colored on the given pool
+        h.setParallelRendering(pool);
+    }
+
+    public void enableTransitIndex(long resolutionMicros) {
+        // Record the transit times of every pixel, see HealPixDensityMapper.enableTransitIndex
+        h.enableTransitIndex(resolutionMicros);
+    }
+
+    public void enablePositionAngles() {
+        // Count the scan directions of the transits of every pixel, see HealPixDensityMapper.enablePositionAngles
+        h.enablePositionAngles();
+    }
+
+    public void setIncrementalRendering(boolean incremental) {
+        // Only recolor the part of the map that changed since the previous frame
+        h.setIncrementalRendering(incremental);
+    }
+
+    public void setFrameSink(FrameSink sink) {
+        // Send frames to sink instead of writing PNG files; it is closed after the last step
+        h.setFrameSink(sink);
+    }
+
+    public CountsStore getCountsStore() {
+        return h.getCountsStore();
+    }
+
+    public CoverageHistogram getCoverageHistogram() {
+        return h.getCoverageHistogram();
+    }
+
+    public TransitIndex getTransitIndex() {
+        return h.getTransitIndex();
+    }
+
+    public PositionAngleHistogram getPositionAngles() {
+        return h.getPositionAngles();
+    }
+
+    private void drainFrames() {
+        if(pipeline != null) {
+            try {
+                pipeline.drain();
+            }
+            catch(Exception e) {
+                System.out.println("Error: " + e);
+            }
+        }
+    }
+
+    public void finishRendering() {
+        // Wait for all frames in the background pipeline to be written
+        if(pipeline != null) {
+            try {
+                pipeline.close();
+            }
+            catch(Exception e) {
+                System.out.println("Error: " + e);
+            }
+            pipeline = null;
+        }
     }
 
     public void reset() {
-        ts = new double[nSteps];
-        solarLongitudes = new double[nSteps];
-        nus = new double[nSteps];
-        omegas = new double[nSteps];
-        sunDirection = new SphericalCoordinates[nSteps];
-        precessionAxis = new SphericalCoordinates[nSteps];
-        scanDirection = new SphericalCoordinates[nSteps];
+        finishRendering();
+        resuming = false;
+        if(renderThreads > 0) {
+            pipeline = new FramePipeline(h, renderThreads, maxPendingFrames);
+        }
+        history.clear();
         current = 0;
         framenumber = 0;
     }
 
+    public AttitudeBuffer getHistory() {
+        return history;
+    }
+
     public void drawMap(int n) {
         try {
-            h.drawMap(n);
+            if(pipeline != null) {
+                pipeline.submit(n);
+            }
+            else {
+                h.drawMap(n);
+            }
         }
         catch(Exception e) {
             System.out.println("Error: " + e);
@@ -0,0 +1,96 @@
+import healpix.essentials.HealpixBase;
+import healpix.essentials.Scheme;
+
+
+public class NestedCounts {
+    // Transit counts in the NESTED scheme
+    // In NESTED order the 4^k children of a pixel at nside/2^k are contiguous, so coarser maps are obtained
+    // by summing blocks of the finest map, without querying HealPix again
+
+    private int nside;
+    private int[] counts;
+
+    public NestedCounts(int nside, int[] counts) {
+        // counts is used directly, not copied
+        this.nside = nside;
+        this.counts = counts;
+    }
+
+    public static NestedCounts fromRing(int nside, int[] ringCounts) {
+        // Conversions build the permutation table every time; they are meant for one-off exports, not for every frame
+        int[] nestToRing = getNestToRing(nside);
+        int[] counts = new int[ringCounts.length];
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] = ringCounts[nestToRing[i]];
+        }
+        return new NestedCounts(nside, counts);
+    }
+
+    public int getNside() {
+        return nside;
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public int[] toRing() {
+        // Same counts in RING order
+        int[] nestToRing = getNestToRing(nside);
+        int[] ringCounts = new int[counts.length];
+        for(int i = 0; i < counts.length; i++) {
+            ringCounts[nestToRing[i]] = counts[i];
+        }
+        return ringCounts;
+    }
+
+    public static int getLevels(int nside, int targetNside) {
+        // Number of halvings from nside to targetNside, which must be nside divided by a power of two
+        int k = Integer.numberOfTrailingZeros(nside) - Integer.numberOfTrailingZeros(targetNside);
+        if(targetNside <= 0 || k < 0 || targetNside << k != nside) {
+            throw new IllegalArgumentException("Cannot downgrade nside " + nside + " to " + targetNside);
+        }
+        return k;
+    }
+
+    public NestedCounts downgrade(int targetNside) {
+        // Sum of the counts of the 4^k children of every pixel at targetNside = nside/2^k
+        int k = getLevels(nside, targetNside);
+        int block = 1 << (2 * k);
+        int[] res = new int[counts.length >> (2 * k)];
+        for(int i = 0, j = 0; i < res.length; i++) {
+            int sum = 0;
+            for(int end = j + block; j < end; j++) {
+                sum += counts[j];
+            }
+            res[i] = sum;
+        }
+        return new NestedCounts(targetNside, res);
+    }
+
+    public NestedCounts downgradeAverage(int targetNside) {
+        // Mean count of the children, rounded, so that maps at different nside share the same scale
+        int k = getLevels(nside, targetNside);
+        int[] res = downgrade(targetNside).getCounts();
+        long half = (1L << (2 * k)) >> 1;
+        for(int i = 0; i < res.length; i++) {
+            res[i] = (int)((res[i] + half) >> (2 * k));
+        }
+        return new NestedCounts(targetNside, res);
+    }
+
+    public static int[] getNestToRing(int nside) {
+        // Permutation table: element i is the RING index of NESTED pixel i; not cached, the caller keeps it if needed
+        try {
+            HealpixBase base = new HealpixBase(nside, Scheme.NESTED);
+            int[] table = new int[(int)base.getNpix()];
+            for(int i = 0; i < table.length; i++) {
+                table[i] = (int)base.nest2ring(i);
+            }
+            return table;
+        }
+        catch(Exception e) {
+            throw new IllegalArgumentException("Invalid nside " + nside + ": " + e);
+        }
+    }
+}
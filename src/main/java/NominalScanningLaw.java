@@ -1,4 +1,11 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.math3.ode.FirstOrderDifferentialEquations;
+import org.apache.commons.math3.ode.events.EventHandler;
 import org.apache.commons.math3.ode.nonstiff.AdaptiveStepsizeIntegrator;
 import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
 import org.apache.commons.math3.ode.sampling.StepNormalizer;
@@ -13,32 +20,165 @@ public class NominalScanningLaw {
     private double endTime;
     private int nSteps;
     private NSLStepHandler stepHandler;
+    private String checkpointPath;
+    private String attitudePath;
+    private double targetFraction;
+    private int targetTransits;
 
     public NominalScanningLaw() {
+        this(new HammerProjection(0, true));
+    }
+
+    public NominalScanningLaw(Projection projection) {
         precessionSpeedConstant = 4.223;
         solarAspectAngle = Math.toRadians(45.0);
         inertialSpinRate = Math.toRadians(60.0/3600.0) * 86400; // Rad per day
         startTime = 14*365.25; // 1 january 2014 is 14*365.25 days after J2000.0
         endTime = startTime + 5*365.25;
         stepSize = 1.0/(24*60); // 1 minute; used to be 0.0005;
-        nSteps = (int)(endTime/stepSize) + 1;
-        stepHandler = new NSLStepHandler(nSteps, solarAspectAngle, "~/Desktop/movie/", false);
+        nSteps = (int)((endTime - startTime)/stepSize) + 1;
+        // Only keep the attitude of the last hour; use new NSLStepHandler(nSteps, ...) for the full history
+        stepHandler = new NSLStepHandler(solarAspectAngle, "~/Desktop/movie/", false, new AttitudeBuffer(60), projection);
+        int renderThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        stepHandler.enableAsyncRendering(renderThreads, renderThreads + 2);
+        stepHandler.setIncrementalRendering(true);
+    }
+
+    public void enableCheckpoints(String path) {
+        // Checkpoint once per simulated day to path.0 and path.1, so that resumeIntegration can continue the run
+        this.checkpointPath = path;
+        stepHandler.enableCheckpoints(path, 24*60);
+    }
+
+    public void setCoverageTarget(double fraction, int transits) {
+        // Stop the integration as soon as the given fraction of the sky has at least the given number of transits,
+        // e.g. setCoverageTarget(0.999, 20); a fraction of 0 disables the target
+        this.targetFraction = fraction;
+        this.targetTransits = transits;
     }
 
-    public void runIntegration() {
+    private void addCoverageTarget(AdaptiveStepsizeIntegrator integrator) {
+        if(targetFraction > 0) {
+            EventHandler target = new CoverageTarget(stepHandler.getCoverageHistogram(), targetFraction, targetTransits);
+            integrator.addEventHandler(target, 1.0, 1.0e-6, 100);
+        }
+    }
+
+    public void setFrameSink(FrameSink sink) {
+        stepHandler.setFrameSink(sink);
+    }
+
+    public void enableAttitudeOutput(String path) {
+        // Write nu and omega of every step to a columnar attitude file, see AttitudeFileWriter; off by default,
+        // since it takes about 168 MB for the 5 year mission
+        this.attitudePath = path;
+    }
+
+    public void runIntegration() throws Exception {
         // Initial conditions for nu and omega
         double[] y = new double[] {Math.PI/2.0, Math.PI/2.0};
 
         stepHandler.reset();
+        stepHandler.clearCheckpoints();
+        if(attitudePath != null) {
+            stepHandler.enableAttitudeOutput(attitudePath, nSteps + 1);
+        }
+        AdaptiveStepsizeIntegrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        FirstOrderDifferentialEquations ode = new NSLIntegrator(precessionSpeedConstant, solarAspectAngle, inertialSpinRate);
+        integrator.addStepHandler(new StepNormalizer(stepSize, stepHandler));
+        addCoverageTarget(integrator);
+        try {
+            integrator.integrate(ode, startTime, y, endTime, y);
+        }
+        finally {
+            // Normally done after the last step; also needed when the integration fails or stops early
+            stepHandler.finish();
+        }
+    }
+
+    public void resumeIntegration() throws Exception {
+        // Continue from the last checkpoint written by runIntegration or resumeIntegration
+        // The integrator restarts at the checkpoint with a fresh step size history, so it takes other steps than
+        // an uninterrupted run; nu and omega agree to about the integration tolerance, not bit for bit
+        if(checkpointPath == null) {
+            throw new IllegalStateException("Checkpoints are not enabled, see enableCheckpoints");
+        }
+        MissionCheckpoint checkpoint = MissionCheckpoint.read(checkpointPath);
+        if(checkpoint == null) {
+            throw new Exception("No checkpoint found at " + checkpointPath);
+        }
+        double[] y = new double[] {checkpoint.getNu(), checkpoint.getOmega()};
+
+        stepHandler.reset();
+        stepHandler.restore(checkpoint);
+        if(attitudePath != null) {
+            stepHandler.resumeAttitudeOutput(attitudePath, checkpoint.getStep());
+        }
         AdaptiveStepsizeIntegrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
         FirstOrderDifferentialEquations ode = new NSLIntegrator(precessionSpeedConstant, solarAspectAngle, inertialSpinRate);
         integrator.addStepHandler(new StepNormalizer(stepSize, stepHandler));
+        addCoverageTarget(integrator);
+        try {
+            integrator.integrate(ode, checkpoint.getT(), y, endTime, y);
+        }
+        finally {
+            stepHandler.finish();
+        }
+    }
+
+    public AttitudeService computeAttitudeService(int cacheSize) {
+        // Integrates the scanning law only, keeping nu(t) and omega(t) for queries at any time
+        double[] y = new double[] {Math.PI/2.0, Math.PI/2.0};
+        AttitudeService service = new AttitudeService(cacheSize);
+        AdaptiveStepsizeIntegrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        FirstOrderDifferentialEquations ode = new NSLIntegrator(precessionSpeedConstant, solarAspectAngle, inertialSpinRate);
+        integrator.addStepHandler(service);
         integrator.integrate(ode, startTime, y, endTime, y);
+        return service;
+    }
+
+    public int[] runSegmentedIntegration(int nSegments, int nThreads) throws Exception {
+        // Coverage only: computes the final counts map on nThreads threads, without drawing frames
+        double[] y = new double[] {Math.PI/2.0, Math.PI/2.0};
+        SegmentedMission mission = new SegmentedMission(precessionSpeedConstant, solarAspectAngle, inertialSpinRate,
+                startTime, endTime, stepSize, y, 512);
+        return mission.run(nSegments, nThreads);
     }
 
 
-    public static void main(String[] args) {
-        NominalScanningLaw nsl = new NominalScanningLaw();
-        nsl.runIntegration();
+    public static void main(String[] args) throws Exception {
+        // Arguments: "resume" continues from the last checkpoint, "stream" writes uncompressed Y4M to stdout
+        // instead of PNG files, e.g. java NominalScanningLaw stream | ffmpeg -i - movie.mp4
+        // "projection=<name>" selects the map projection, see Projection.forName; the default is hammer
+        // "attitude" writes the attitude of every step to ~/Desktop/movie/attitude.bin
+        // "checkpoints" writes a checkpoint every simulated day to ~/Desktop/movie/checkpoint.0 and .1, which
+        // "resume" continues from
+        List<String> options = Arrays.asList(args);
+        if(options.contains("stream")) {
+            // Keep the log messages out of the video stream
+            System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+        }
+        Projection projection = new HammerProjection(0, true);
+        for(String option: options) {
+            if(option.startsWith("projection=")) {
+                projection = Projection.forName(option.substring("projection=".length()));
+            }
+        }
+        NominalScanningLaw nsl = new NominalScanningLaw(projection);
+        if(options.contains("stream")) {
+            nsl.setFrameSink(new RawVideoSink("-", RawVideoSink.Format.Y4M, 1920, 1080, 30));
+        }
+        if(options.contains("checkpoints") || options.contains("resume")) {
+            nsl.enableCheckpoints("~/Desktop/movie/checkpoint");
+        }
+        if(options.contains("attitude")) {
+            nsl.enableAttitudeOutput("~/Desktop/movie/attitude.bin");
+        }
+        if(options.contains("resume")) {
+            nsl.resumeIntegration();
+        }
+        else {
+            nsl.runIntegration();
+        }
     }
 }
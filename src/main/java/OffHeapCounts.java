@@ -0,0 +1,135 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+
+public class OffHeapCounts implements CountsStore {
+    // Counts outside the Java heap, in direct buffers or in a memory mapped file, with 2 or 4 bytes per count
+    // The storage is split into segments of 2^30 bytes, so the number of pixels is only limited by memory or disk
+    // When a 16 bit count overflows, all counts are copied to new 32 bit storage; a mapped file then continues
+    // in path + ".32" instead of path + ".16"
+    private static final int SHORT_MAX = 0xFFFF;
+
+    private int segmentBits;
+    private long segmentMask;
+    private long size;
+    private String path;
+    private int bytesPerCount;
+    private ByteBuffer[] segments;
+
+    public OffHeapCounts(long size) {
+        this(size, null);
+    }
+
+    public OffHeapCounts(long size, String path) {
+        // With a path the counts are kept in a memory mapped file, otherwise in direct buffers
+        this(size, path, 30);
+    }
+
+    OffHeapCounts(long size, String path, int segmentBits) {
+        // Segments of 2^segmentBits bytes; smaller segments let tests cross segment boundaries with few counts
+        this.segmentBits = segmentBits;
+        this.segmentMask = (1L << segmentBits) - 1;
+        this.size = size;
+        this.path = path == null ? null : FilePaths.expand(path);
+        try {
+            segments = allocate(2);
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Cannot create counts storage: " + e);
+        }
+        bytesPerCount = 2;
+    }
+
+    private ByteBuffer[] allocate(int width) throws IOException {
+        long bytes = size * width;
+        int n = (int)((bytes + segmentMask) >>> segmentBits);
+        ByteBuffer[] res = new ByteBuffer[n];
+        if(path == null) {
+            for(int k = 0; k < n; k++) {
+                res[k] = ByteBuffer.allocateDirect((int)Math.min(1L << segmentBits, bytes - ((long)k << segmentBits)));
+                res[k].order(ByteOrder.nativeOrder());
+            }
+            return res;
+        }
+
+        File file = new File(path + "." + (8 * width));
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength(bytes);
+            FileChannel channel = raf.getChannel();
+            for(int k = 0; k < n; k++) {
+                long offset = (long)k << segmentBits;
+                res[k] = channel.map(FileChannel.MapMode.READ_WRITE, offset, Math.min(1L << segmentBits, bytes - offset));
+                res[k].order(ByteOrder.nativeOrder());
+            }
+        }
+        return res;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int getBytesPerCount() {
+        return bytesPerCount;
+    }
+
+    public int get(long i) {
+        long offset = i * bytesPerCount;
+        ByteBuffer segment = segments[(int)(offset >>> segmentBits)];
+        if(bytesPerCount == 2) {
+            return segment.getShort((int)(offset & segmentMask)) & SHORT_MAX;
+        }
+        return segment.getInt((int)(offset & segmentMask));
+    }
+
+    public int increment(long i) {
+        int value = get(i) + 1;
+        if(bytesPerCount == 2 && value > SHORT_MAX) {
+            promote();
+        }
+        put(i, value);
+        return value;
+    }
+
+    public void set(long i, int value) {
+        if(bytesPerCount == 2 && (value < 0 || value > SHORT_MAX)) {
+            promote();
+        }
+        put(i, value);
+    }
+
+    private void put(long i, int value) {
+        long offset = i * bytesPerCount;
+        ByteBuffer segment = segments[(int)(offset >>> segmentBits)];
+        if(bytesPerCount == 2) {
+            segment.putShort((int)(offset & segmentMask), (short)value);
+        }
+        else {
+            segment.putInt((int)(offset & segmentMask), value);
+        }
+    }
+
+    private void promote() {
+        ByteBuffer[] wide;
+        try {
+            wide = allocate(4);
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Cannot promote counts storage: " + e);
+        }
+        for(long i = 0; i < size; i++) {
+            long offset = 4 * i;
+            wide[(int)(offset >>> segmentBits)].putInt((int)(offset & segmentMask), get(i));
+        }
+        segments = wide;
+        bytesPerCount = 4;
+        if(path != null) {
+            new File(path + ".16").delete();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+public class OrthographicProjection implements Projection {
+    // The sky as a globe seen from far away: the hemisphere around (centerLongitude, centerLatitude) is projected
+    // onto the unit disk, the other hemisphere is hidden and projects to NaN
+    // The range is twice as wide as high, like that of the Hammer projection, so that the globe stays round on a
+    // map of the usual 2:1 size
+    private double centerTheta;
+    private double centerLatitude;
+    private double sinCenter;
+    private double cosCenter;
+    private int longitudeSign;
+    private double[] xRange;
+    private double[] yRange;
+
+    // centerLongitude and centerLatitude are supplied in degrees
+    public OrthographicProjection(double centerLongitude, double centerLatitude) {
+        this(centerLongitude, centerLatitude, false);
+    }
+
+    public OrthographicProjection(double centerLongitude, double centerLatitude, boolean invertLongitude) {
+        this.centerTheta = Math.toRadians(centerLongitude);
+        this.centerLatitude = Math.toRadians(centerLatitude);
+        this.sinCenter = Math.sin(this.centerLatitude);
+        this.cosCenter = Math.cos(this.centerLatitude);
+        this.longitudeSign = invertLongitude ? -1 : 1;
+        this.xRange = new double[] {-2.0, 2.0};
+        this.yRange = new double[] {-1.0, 1.0};
+    }
+
+    public double getCenterLongitude() {
+        return Math.toDegrees(centerTheta);
+    }
+
+    public double getCenterLatitude() {
+        return Math.toDegrees(centerLatitude);
+    }
+
+    private void project(double theta, double phi, double[] x, int xIndex, double[] y, int yIndex) {
+        double longitude = longitudeSign * Projection.reduceTheta(theta - centerTheta);
+        double latitude = Math.PI/2.0 - phi;
+        double sl = Math.sin(latitude);
+        double cl = Math.cos(latitude);
+        double cosLongitude = Math.cos(longitude);
+        // Cosine of the angular distance to the center
+        if(sinCenter * sl + cosCenter * cl * cosLongitude < 0) {
+            x[xIndex] = Double.NaN;
+            y[yIndex] = Double.NaN;
+            return;
+        }
+        x[xIndex] = cl * Math.sin(longitude);
+        y[yIndex] = cosCenter * sl - sinCenter * cl * cosLongitude;
+    }
+
+    private void inverseProject(double x, double y, double[] theta, int thetaIndex, double[] phi, int phiIndex) {
+        double rho = Math.sqrt(x * x + y * y);
+        if(rho > 1.0) {
+            theta[thetaIndex] = Double.NaN;
+            phi[phiIndex] = Double.NaN;
+            return;
+        }
+        // sin and cos of the angular distance to the center
+        double sc = rho;
+        double cc = Math.sqrt(1 - rho * rho);
+        double latitude = Math.asin(Math.max(-1.0, Math.min(1.0, cc * sinCenter + y * cosCenter)));
+        double longitude = Math.atan2(x * sc, rho * cc * cosCenter - y * sc * sinCenter);
+        if(rho == 0) {
+            longitude = 0;
+        }
+        theta[thetaIndex] = longitudeSign * longitude + centerTheta;
+        phi[phiIndex] = Math.PI/2.0 - latitude;
+    }
+
+    // Project using longitude and latitude in degrees
+    public double[] projectLongLat(double longitude, double latitude) {
+        return projectThetaPhi(Math.toRadians(longitude), Math.toRadians(90.0 - latitude));
+    }
+
+    // Project using theta (angle around equator) and phi (angle from north pole) in radians
+    public double[] projectThetaPhi(double theta, double phi) {
+        double[] res = new double[2];
+        project(theta, phi, res, 0, res, 1);
+        return res;
+    }
+
+    public void projectThetaPhi(double[] theta, double[] phi, int inOffset, double[] x, double[] y, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            project(theta[inOffset + i], phi[inOffset + i], x, outOffset + i, y, outOffset + i);
+        }
+    }
+
+    // Inverse project to longitude and latitude in degrees
+    public double[] inverseProjectLongLat(double x, double y) {
+        double[] thetaPhi = inverseProjectThetaPhi(x, y);
+        return new double[] {Math.toDegrees(thetaPhi[0]), Math.toDegrees(Math.PI/2.0 - thetaPhi[1])};
+    }
+
+    // Inverse project to theta and phi in radians
+    public double[] inverseProjectThetaPhi(double x, double y) {
+        double[] res = new double[2];
+        inverseProject(x, y, res, 0, res, 1);
+        return res;
+    }
+
+    public void inverseProjectThetaPhi(double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            inverseProject(x[inOffset + i], y[inOffset + i], theta, outOffset + i, phi, outOffset + i);
+        }
+    }
+
+    public double[] getXRange() {
+        return xRange.clone();
+    }
+
+    public double[] getYRange() {
+        return yRange.clone();
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.ode.nonstiff.AdaptiveStepsizeIntegrator;
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.FixedStepHandler;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+
+
+public class ParameterSweep {
+    // Screens scanning law configurations on a thread pool: every configuration is integrated and its sky coverage
+    // counted (coverage only, no images), and the coverage uniformity metrics are written as one CSV row each
+    private static final double[] PERCENTILES = {1, 5, 25, 50, 75, 95, 99};
+
+    public static class Configuration {
+        // Precession speed constant S, solar aspect angle xi (rad), inertial spin rate (rad/day),
+        // initial nu and omega (rad) and start epoch (days since J2000.0)
+        private double precessionSpeedConstant;
+        private double solarAspectAngle;
+        private double inertialSpinRate;
+        private double nu0;
+        private double omega0;
+        private double startTime;
+
+        public Configuration(double precessionSpeedConstant, double solarAspectAngle, double inertialSpinRate,
+                             double nu0, double omega0, double startTime) {
+            this.precessionSpeedConstant = precessionSpeedConstant;
+            this.solarAspectAngle = solarAspectAngle;
+            this.inertialSpinRate = inertialSpinRate;
+            this.nu0 = nu0;
+            this.omega0 = omega0;
+            this.startTime = startTime;
+        }
+
+        public double getPrecessionSpeedConstant() {
+            return precessionSpeedConstant;
+        }
+
+        public double getSolarAspectAngle() {
+            return solarAspectAngle;
+        }
+
+        public double getInertialSpinRate() {
+            return inertialSpinRate;
+        }
+
+        public double getNu0() {
+            return nu0;
+        }
+
+        public double getOmega0() {
+            return omega0;
+        }
+
+        public double getStartTime() {
+            return startTime;
+        }
+    }
+
+    private double duration;
+    private double stepSize;
+    private int nside;
+    private int[] thresholds;
+    private List<Configuration> configurations;
+
+    public ParameterSweep(double duration, double stepSize, int nside, int[] thresholds) {
+        // duration and stepSize in days; thresholds are the transit counts N for the fraction of the sky below N
+        this.duration = duration;
+        this.stepSize = stepSize;
+        this.nside = nside;
+        this.thresholds = thresholds.clone();
+        this.configurations = new ArrayList<>();
+    }
+
+    public void addConfiguration(Configuration configuration) {
+        configurations.add(configuration);
+    }
+
+    public void addGrid(double[] precessionSpeedConstants, double[] solarAspectAngles, double[] inertialSpinRates,
+                        double[] nu0s, double[] omega0s, double[] startTimes) {
+        // All combinations of the given values
+        for(double S: precessionSpeedConstants) {
+            for(double xi: solarAspectAngles) {
+                for(double spinRate: inertialSpinRates) {
+                    for(double nu0: nu0s) {
+                        for(double omega0: omega0s) {
+                            for(double startTime: startTimes) {
+                                addConfiguration(new Configuration(S, xi, spinRate, nu0, omega0, startTime));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public List<Configuration> getConfigurations() {
+        return configurations;
+    }
+
+    public CoverageMetrics runConfiguration(Configuration c) throws Exception {
+        // Coverage of a single configuration, computed on the calling thread
+        final AttitudeCalculator attitudeCalculator = new AttitudeCalculator(c.getSolarAspectAngle());
+        final Sun sun = new Sun();
+        final HealPixDensityMapper h = new HealPixDensityMapper(nside);
+        final double startTime = c.getStartTime();
+
+        FixedStepHandler handler = new FixedStepHandler() {
+            public void init(double t0, double[] y0, double t) {
+            }
+
+            public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
+                h.scanStep(attitudeCalculator, t - startTime, sun.solarLongitude(t), y[0], y[1]);
+            }
+        };
+
+        // Same integrator settings as NominalScanningLaw.runIntegration
+        double[] y = new double[] {c.getNu0(), c.getOmega0()};
+        AdaptiveStepsizeIntegrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        NSLIntegrator ode = new NSLIntegrator(c.getPrecessionSpeedConstant(), c.getSolarAspectAngle(), c.getInertialSpinRate(), sun);
+        integrator.addStepHandler(new StepNormalizer(stepSize, handler));
+        integrator.integrate(ode, startTime, y, startTime + duration, y);
+        return h.getCoverageHistogram().getMetrics();
+    }
+
+    public List<CoverageMetrics> run(int nThreads) throws InterruptedException {
+        // Metrics of every configuration, in the order in which they were added; null for a failed configuration
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        List<Future<CoverageMetrics>> futures = new ArrayList<>();
+        List<CoverageMetrics> results = new ArrayList<>();
+        try {
+            for(final Configuration c: configurations) {
+                futures.add(pool.submit(() -> runConfiguration(c)));
+            }
+            for(Future<CoverageMetrics> f: futures) {
+                try {
+                    results.add(f.get());
+                }
+                catch(ExecutionException e) {
+                    System.out.println("Error: " + e.getCause());
+                    results.add(null);
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    public void writeCsv(List<CoverageMetrics> results, String path) throws IOException {
+        try(PrintWriter out = new PrintWriter(new File(FilePaths.expand(path)), "UTF-8")) {
+            StringBuilder header = new StringBuilder("S,xi_rad,spin_rate_rad_per_day,nu0_rad,omega0_rad,start_day,min,max,mean");
+            for(double p: PERCENTILES) {
+                header.append(",p").append((int)p);
+            }
+            for(int n: thresholds) {
+                header.append(",fraction_below_").append(n);
+            }
+            out.println(header);
+
+            for(int i = 0; i < configurations.size(); i++) {
+                Configuration c = configurations.get(i);
+                CoverageMetrics m = results.get(i);
+                StringBuilder row = new StringBuilder();
+                row.append(String.format(Locale.ROOT, "%s,%s,%s,%s,%s,%s", c.getPrecessionSpeedConstant(), c.getSolarAspectAngle(),
+                        c.getInertialSpinRate(), c.getNu0(), c.getOmega0(), c.getStartTime()));
+                if(m == null) {
+                    // Failed configuration: keep the row, without metrics
+                    for(int k = 0; k < 3 + PERCENTILES.length + thresholds.length; k++) {
+                        row.append(",");
+                    }
+                }
+                else {
+                    row.append(String.format(Locale.ROOT, ",%d,%d,%.6f", m.getMin(), m.getMax(), m.getMean()));
+                    for(double p: PERCENTILES) {
+                        row.append(",").append(m.getPercentile(p));
+                    }
+                    for(int n: thresholds) {
+                        row.append(String.format(Locale.ROOT, ",%.6f", m.getFractionBelow(n)));
+                    }
+                }
+                out.println(row);
+            }
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        // Screen precession speed constants and solar aspect angles around the nominal law over one year
+        ParameterSweep sweep = new ParameterSweep(365.25, 1.0/(24*60), 128, new int[] {10, 20, 50});
+        sweep.addGrid(new double[] {3.5, 4.0, 4.223, 4.5, 5.0},
+                new double[] {Math.toRadians(40.0), Math.toRadians(42.5), Math.toRadians(45.0)},
+                new double[] {Math.toRadians(60.0/3600.0) * 86400},
+                new double[] {Math.PI/2.0},
+                new double[] {Math.PI/2.0},
+                new double[] {14*365.25});
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        sweep.writeCsv(sweep.run(nThreads), "~/Desktop/sweep.csv");
+    }
+}
@@ -0,0 +1,37 @@
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+
+public class PngFrameSink implements FrameSink {
+    // One PNG file per frame, outputFolder/frameNNNNNN.png; the deflate compression runs in encode
+    private String outputFolder;
+
+    public PngFrameSink(String outputFolder) {
+        this.outputFolder = outputFolder;
+        if(!this.outputFolder.endsWith(File.separator)) {
+            this.outputFolder += File.separator;
+        }
+    }
+
+    public File getFrameFile(int n) {
+        return new File(outputFolder + "frame" + String.format("%06d", n) + ".png");
+    }
+
+    public byte[] encode(BufferedImage img) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+
+    public void write(byte[] data, int frameNumber) throws IOException {
+        Files.write(getFrameFile(frameNumber).toPath(), data);
+    }
+
+    public void close() {
+    }
+}
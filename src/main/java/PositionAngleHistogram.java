@@ -0,0 +1,127 @@
+public class PositionAngleHistogram {
+    // Distribution of the scan directions over the transits of every HealPix pixel
+    // The position angle of the scan direction, from north through east, is taken modulo 180 degrees, since a scan
+    // and its reverse measure along the same direction, and counted in BINS bins of 10 degrees
+    // Every bin is a single CountsStore over all pixels, so there are no per-pixel objects; with 16 bit counts
+    // nside 512 (3.1 million pixels) takes 113 MB
+    public static final int BINS = 18;
+    public static final double BIN_WIDTH = Math.PI / BINS;
+
+    private CountsStore[] bins;
+    // cos and sin of twice the bin centers, for statistics of the axial angles
+    private double[] binCos;
+    private double[] binSin;
+
+    public PositionAngleHistogram(long npix) {
+        bins = new CountsStore[BINS];
+        binCos = new double[BINS];
+        binSin = new double[BINS];
+        for(int b = 0; b < BINS; b++) {
+            bins[b] = CountsStore.create(npix);
+            binCos[b] = Math.cos(2 * (b + 0.5) * BIN_WIDTH);
+            binSin[b] = Math.sin(2 * (b + 0.5) * BIN_WIDTH);
+        }
+    }
+
+    public long size() {
+        return bins[0].size();
+    }
+
+    public static double positionAngle(double x, double y, double z, double[] spinAxis) {
+        // Position angle in 0..PI of the scan direction at the unit vector (x, y, z) for the given spin axis
+        // A point on the scan circle moves along spinAxis x p; its components along local east and north are
+        // spinAxis . north and -spinAxis . east, both multiplied here by the positive cos(declination);
+        // the angle is measured from north through east
+        double rho2 = x * x + y * y;
+        double eastComponent = spinAxis[2] * rho2 - z * (spinAxis[0] * x + spinAxis[1] * y);
+        double northComponent = spinAxis[0] * y - spinAxis[1] * x;
+        double angle = Math.atan2(eastComponent, northComponent);
+        if(angle < 0) {
+            angle += Math.PI;
+        }
+        return angle < Math.PI ? angle : 0.0;
+    }
+
+    public static int getBin(double positionAngle) {
+        return Math.min(BINS - 1, (int)(positionAngle / BIN_WIDTH));
+    }
+
+    public void add(long pixel, double positionAngle) {
+        bins[getBin(positionAngle)].increment(pixel);
+    }
+
+    public int getCount(long pixel, int bin) {
+        return bins[bin].get(pixel);
+    }
+
+    public int[] getHistogram(long pixel) {
+        int[] res = new int[BINS];
+        for(int b = 0; b < BINS; b++) {
+            res[b] = bins[b].get(pixel);
+        }
+        return res;
+    }
+
+    public CountsStore getBinCounts(int bin) {
+        // Counts of one bin for all pixels
+        return bins[bin];
+    }
+
+    public double getMeanResultantLength(long pixel) {
+        // Length of the mean of the doubled angles: 1 when all scans are parallel, close to 0 when the directions
+        // are spread evenly; 0 for pixels without transits
+        double c = 0;
+        double s = 0;
+        long n = 0;
+        for(int b = 0; b < BINS; b++) {
+            int count = bins[b].get(pixel);
+            c += count * binCos[b];
+            s += count * binSin[b];
+            n += count;
+        }
+        return n > 0 ? Math.sqrt(c * c + s * s) / n : 0.0;
+    }
+
+    public double getDominantAngle(long pixel) {
+        // Mean axial direction of the scans in 0..PI, i.e. half the direction of the mean of the doubled angles;
+        // NaN for pixels without transits
+        double c = 0;
+        double s = 0;
+        long n = 0;
+        for(int b = 0; b < BINS; b++) {
+            int count = bins[b].get(pixel);
+            c += count * binCos[b];
+            s += count * binSin[b];
+            n += count;
+        }
+        if(n == 0) {
+            return Double.NaN;
+        }
+        double angle = 0.5 * Math.atan2(s, c);
+        return angle < 0 ? angle + Math.PI : angle;
+    }
+
+    public double[] getMeanResultantLengths() {
+        // Map of getMeanResultantLength for all pixels; needs less than 2^31 pixels
+        if(size() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Maps of more than 2^31 pixels are not supported, use the per-pixel methods");
+        }
+        double[] res = new double[(int)size()];
+        for(int i = 0; i < res.length; i++) {
+            res[i] = getMeanResultantLength(i);
+        }
+        return res;
+    }
+
+    public double[] getDominantAngles() {
+        // Map of getDominantAngle for all pixels; needs less than 2^31 pixels
+        if(size() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Maps of more than 2^31 pixels are not supported, use the per-pixel methods");
+        }
+        double[] res = new double[(int)size()];
+        for(int i = 0; i < res.length; i++) {
+            res[i] = getDominantAngle(i);
+        }
+        return res;
+    }
+}
@@ -5,4 +5,53 @@ public interface Projection {
     public double[] inverseProjectThetaPhi(double x, double y);
     public double[] getXRange();
     public double[] getYRange();
+
+    // Batch versions: elements inOffset to inOffset + length - 1 of the inputs are written to the outputs
+    // starting at outOffset; points outside the projection give NaN, as in inverseProjectThetaPhi
+    // The defaults call the single point methods, implementations can override them with an allocation-free loop
+    public default void projectThetaPhi(double[] theta, double[] phi, int inOffset, double[] x, double[] y, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            double[] p = projectThetaPhi(theta[inOffset + i], phi[inOffset + i]);
+            x[outOffset + i] = p[0];
+            y[outOffset + i] = p[1];
+        }
+    }
+
+    public default void inverseProjectThetaPhi(double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length) {
+        for(int i = 0; i < length; i++) {
+            double[] p = inverseProjectThetaPhi(x[inOffset + i], y[inOffset + i]);
+            theta[outOffset + i] = p[0];
+            phi[outOffset + i] = p[1];
+        }
+    }
+
+    // Reduces a longitude difference to -PI..PI
+    public static double reduceTheta(double theta) {
+        while(theta > Math.PI) {
+            theta -= 2*Math.PI;
+        }
+        while(theta < -Math.PI) {
+            theta += 2*Math.PI;
+        }
+        return theta;
+    }
+
+    // Projection of the whole sky by name, as used on the command line: hammer, mollweide, aitoff, lambert
+    // or orthographic, centered on longitude 0 and seen from inside the sphere like the default Hammer projection
+    public static Projection forName(String name) {
+        switch(name) {
+            case "hammer":
+                return new HammerProjection(0, true);
+            case "mollweide":
+                return new MollweideProjection(0, true);
+            case "aitoff":
+                return new AitoffProjection(0, true);
+            case "lambert":
+                return new LambertPolarProjection(0, true);
+            case "orthographic":
+                return new OrthographicProjection(0, 0, true);
+            default:
+                throw new IllegalArgumentException("Unknown projection " + name);
+        }
+    }
 }
@@ -0,0 +1,99 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+public class RawVideoSink implements FrameSink {
+    // Uncompressed frames, appended one after the other to a single file or to stdout, for an encoder such as
+    //   ffmpeg -f yuv4mpegpipe -i movie.y4m ...   or   ffmpeg -f rawvideo -pix_fmt rgb24 -s 1920x1080 -i movie.rgb ...
+    // Y4M uses 4:4:4 full range Y'CbCr (BT.601), so no chroma is lost; raw RGB is rgb24
+    // Frames have to be TYPE_INT_RGB images of the size given to the constructor
+    public enum Format { Y4M, RGB }
+
+    private Format format;
+    private int width;
+    private int height;
+    private int frameRate;
+    private WritableByteChannel channel;
+    private boolean headerWritten;
+
+    public RawVideoSink(String path, Format format, int width, int height, int frameRate) throws IOException {
+        // path "-" writes to stdout; the caller has to keep other output off stdout, e.g. by moving System.out to
+        // stderr as NominalScanningLaw.main does
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+        if(path.equals("-")) {
+            channel = new FileOutputStream(FileDescriptor.out).getChannel();
+        }
+        else {
+            channel = FileChannel.open(Paths.get(FilePaths.expand(path)), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        headerWritten = false;
+    }
+
+    public int getFrameSize() {
+        // Bytes per frame, including the Y4M frame marker
+        return format == Format.Y4M ? 6 + 3 * width * height : 3 * width * height;
+    }
+
+    public byte[] encode(BufferedImage img) {
+        int[] rgb = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+        int n = width * height;
+        byte[] data = new byte[getFrameSize()];
+
+        if(format == Format.RGB) {
+            for(int i = 0, j = 0; i < n; i++, j += 3) {
+                data[j] = (byte)(rgb[i] >> 16);
+                data[j + 1] = (byte)(rgb[i] >> 8);
+                data[j + 2] = (byte)rgb[i];
+            }
+            return data;
+        }
+
+        byte[] marker = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(marker, 0, data, 0, marker.length);
+        int y = marker.length;
+        int cb = y + n;
+        int cr = cb + n;
+        for(int i = 0; i < n; i++) {
+            int r = (rgb[i] >> 16) & 0xFF;
+            int g = (rgb[i] >> 8) & 0xFF;
+            int b = rgb[i] & 0xFF;
+            // JFIF conversion in 16.16 fixed point, rounded; pure red and blue round up to 256 in Cr and Cb
+            data[y + i] = (byte)((19595 * r + 38470 * g + 7471 * b + 32768) >> 16);
+            data[cb + i] = (byte)Math.min(255, (-11056 * r - 21712 * g + 32768 * b + (128 << 16) + 32768) >> 16);
+            data[cr + i] = (byte)Math.min(255, (32768 * r - 27440 * g - 5328 * b + (128 << 16) + 32768) >> 16);
+        }
+        return data;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public void write(byte[] data, int frameNumber) throws IOException {
+        if(!headerWritten && format == Format.Y4M) {
+            String header = "YUV4MPEG2 W" + width + " H" + height + " F" + frameRate + ":1 Ip A1:1 C444 XCOLORRANGE=FULL\n";
+            writeFully(ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII)));
+        }
+        headerWritten = true;
+        writeFully(ByteBuffer.wrap(data));
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
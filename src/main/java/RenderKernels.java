@@ -0,0 +1,29 @@
+public interface RenderKernels {
+    // The data-parallel inner loops of rendering, with a scalar implementation that runs everywhere and an optional
+    // one on the JDK Vector API, which is only compiled with gradle -PvectorApi, see VectorRenderKernels
+
+    // Inverse Hammer projection of the points inOffset to inOffset + length - 1, as HammerProjection.inverseProjectThetaPhi;
+    // points outside the ellipse give NaN
+    public void inverseHammer(double scale, int longitudeSign, double centerTheta,
+                              double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length);
+
+    // Colors the screen pixels from up to to: data[k] = colors[counts[lookup[k]]], or white where lookup[k] is negative
+    // (off the map); colors holds the color of every count up to the maximum of the frame
+    public void colorPixels(int[] counts, int[] lookup, int[] data, int from, int to, int[] colors);
+
+    public String getName();
+
+    public static RenderKernels create() {
+        // The Vector API kernels when they were compiled in and the incubator module is available
+        // (java --add-modules jdk.incubator.vector), unless disabled with -Dnsl.vector=false; scalar kernels otherwise
+        if(!"false".equals(System.getProperty("nsl.vector"))) {
+            try {
+                return (RenderKernels)Class.forName("VectorRenderKernels").getDeclaredConstructor().newInstance();
+            }
+            catch(Exception | LinkageError e) {
+                // Not compiled in, or the module is missing
+            }
+        }
+        return new ScalarRenderKernels();
+    }
+}
@@ -0,0 +1,36 @@
+public class ScalarRenderKernels implements RenderKernels {
+    private static final int WHITE = (255<<16) | (255<<8) | 255;
+
+    public void inverseHammer(double scale, int longitudeSign, double centerTheta,
+                              double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length) {
+        // No early exit: points outside the ellipse are computed with a clamped z and then replaced by NaN,
+        // so the loop body has no branch
+        for(int i = 0; i < length; i++) {
+            double xi = x[inOffset + i];
+            double yi = y[inOffset + i];
+            double xx = xi * xi / (4.0 * scale * scale);
+            double yy = yi * yi / (scale * scale);
+            double outside = xx + yy > 1.0 ? Double.NaN : 0.0;
+            double z = Math.sqrt(Math.max(0.0, 1 - 0.5 * xx - 0.5 * yy));
+
+            theta[outOffset + i] = 2 * Math.atan2(longitudeSign * z * xi, 2 * (2 * z * z - 1)) + centerTheta + outside;
+            phi[outOffset + i] = 0.5 * Math.PI - Math.asin(z * yi) + outside;
+        }
+    }
+
+    public void colorPixels(int[] counts, int[] lookup, int[] data, int from, int to, int[] colors) {
+        for(int k = from; k < to; k++) {
+            int ipix = lookup[k];
+            if(ipix >= 0) {
+                data[k] = colors[counts[ipix]];
+            }
+            else {
+                data[k] = WHITE;
+            }
+        }
+    }
+
+    public String getName() {
+        return "scalar";
+    }
+}
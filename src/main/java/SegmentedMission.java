@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.ode.nonstiff.AdaptiveStepsizeIntegrator;
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.FixedStepHandler;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+
+
+public class SegmentedMission {
+    // Computes the sky coverage of a mission in two phases:
+    // 1. the scanning law ODE is integrated once, storing nu and omega at every fixed step
+    // 2. the mission is split into time segments, which compute attitude and HealPix coverage on separate threads,
+    //    each with its own AttitudeCalculator and partial counts map; the partial maps are summed at the end
+    // The stored samples are exactly those the sequential run sees, so the merged counts match it bit for bit
+    private double precessionSpeedConstant;
+    private double solarAspectAngle;
+    private double inertialSpinRate;
+    private double startTime;
+    private double endTime;
+    private double stepSize;
+    private double[] y0;
+    private int nside;
+
+    private double[] ts;
+    private double[] nus;
+    private double[] omegas;
+    private double[] longitudes;
+    private int nSamples;
+
+    public SegmentedMission(double precessionSpeedConstant, double solarAspectAngle, double inertialSpinRate,
+                            double startTime, double endTime, double stepSize, double[] y0, int nside) {
+        this.precessionSpeedConstant = precessionSpeedConstant;
+        this.solarAspectAngle = solarAspectAngle;
+        this.inertialSpinRate = inertialSpinRate;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.stepSize = stepSize;
+        this.y0 = y0.clone();
+        this.nside = nside;
+    }
+
+    public int getNumberOfSamples() {
+        return nSamples;
+    }
+
+    private void recordSamples() {
+        int capacity = (int)((endTime - startTime)/stepSize) + 2;
+        ts = new double[capacity];
+        nus = new double[capacity];
+        omegas = new double[capacity];
+        nSamples = 0;
+
+        FixedStepHandler recorder = new FixedStepHandler() {
+            public void init(double t0, double[] y0, double t) {
+            }
+
+            public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
+                if(nSamples == ts.length) {
+                    ts = Arrays.copyOf(ts, 2 * nSamples);
+                    nus = Arrays.copyOf(nus, 2 * nSamples);
+                    omegas = Arrays.copyOf(omegas, 2 * nSamples);
+                }
+                ts[nSamples] = t;
+                nus[nSamples] = y[0];
+                omegas[nSamples] = y[1];
+                nSamples += 1;
+            }
+        };
+
+        // Same integrator settings as NominalScanningLaw.runIntegration
+        double[] y = y0.clone();
+        AdaptiveStepsizeIntegrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        NSLIntegrator ode = new NSLIntegrator(precessionSpeedConstant, solarAspectAngle, inertialSpinRate);
+        integrator.addStepHandler(new StepNormalizer(stepSize, recorder));
+        integrator.integrate(ode, startTime, y, endTime, y);
+
+        longitudes = new double[ts.length];
+        new Sun().solarLongitude(ts, longitudes);
+    }
+
+    private int[] runSegment(int first, int last) throws Exception {
+        // Accumulates the coverage of samples first (inclusive) up to last (exclusive)
+        AttitudeCalculator attitudeCalculator = new AttitudeCalculator(solarAspectAngle);
+        HealPixDensityMapper h = new HealPixDensityMapper(nside);
+
+        // The step before the segment is counted by the previous segment, but is needed to deduplicate the first step
+        if(first > 0) {
+            h.markStep(attitudeCalculator, ts[first - 1] - startTime, longitudes[first - 1], nus[first - 1], omegas[first - 1]);
+        }
+
+        for(int i = first; i < last; i++) {
+            h.scanStep(attitudeCalculator, ts[i] - startTime, longitudes[i], nus[i], omegas[i]);
+        }
+        return h.getCounts();
+    }
+
+    public int[] run(int nSegments, int nThreads) throws Exception {
+        if(nSegments < 1) {
+            throw new IllegalArgumentException("Number of segments must be at least 1: " + nSegments);
+        }
+        recordSamples();
+
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        List<Future<int[]>> parts = new ArrayList<>();
+        try {
+            for(int k = 0; k < nSegments; k++) {
+                final int first = (int)((long)nSamples * k / nSegments);
+                final int last = (int)((long)nSamples * (k + 1) / nSegments);
+                parts.add(pool.submit(() -> runSegment(first, last)));
+            }
+
+            int[] counts = parts.get(0).get();
+            for(int k = 1; k < nSegments; k++) {
+                int[] part = parts.get(k).get();
+                for(int i = 0; i < counts.length; i++) {
+                    counts[i] += part[i];
+                }
+            }
+            return counts;
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -8,6 +8,15 @@ public class Sun{
     private double g0;
     private double g1;
 
+    // Optional interpolation table: the unwrapped longitude and its first two derivatives on a regular grid,
+    // evaluated with cubic Hermite polynomials
+    private double tableStart;
+    private double tableEnd;
+    private double tableSpacing;
+    private double[] tableLongitude;
+    private double[] tableRate;
+    private double[] tableAcceleration;
+
     public Sun() {
         // Initialize constants
         e = 0.016709;
@@ -29,4 +38,91 @@ public class Sun{
 
         return new double[] {solar_distance, solar_longitude, derivative_solar_longitude};
     }
+
+    // The scalar methods below give the same results as apparentLongitude, but do not allocate and only
+    // evaluate the terms they need; within the range of the table, if enabled, they interpolate instead
+
+    public double solarLongitude(double t) {
+        // Solar longitude in rad at t days since J2000.0
+        if(tableLongitude != null && t >= tableStart && t < tableEnd) {
+            return interpolate(tableLongitude, tableRate, t) % (2 * Math.PI);
+        }
+        return unwrappedLongitude(t) % (2 * Math.PI);
+    }
+
+    public double solarLongitudeRate(double t) {
+        // Derivative of the solar longitude in rad/day at t days since J2000.0
+        if(tableLongitude != null && t >= tableStart && t < tableEnd) {
+            return interpolate(tableRate, tableAcceleration, t);
+        }
+        return longitudeRate(t);
+    }
+
+    public void solarLongitude(double[] t, double[] res) {
+        // Batch version of solarLongitude: res[i] is the solar longitude at t[i]
+        for(int i = 0; i < t.length; i++) {
+            res[i] = solarLongitude(t[i]);
+        }
+    }
+
+    public void solarLongitudeRate(double[] t, double[] res) {
+        // Batch version of solarLongitudeRate: res[i] is the derivative of the solar longitude at t[i]
+        for(int i = 0; i < t.length; i++) {
+            res[i] = solarLongitudeRate(t[i]);
+        }
+    }
+
+    private double unwrappedLongitude(double t) {
+        double g = g0 + g1 * t;
+        return a0 + a1 * t + 2 * e * Math.sin(g) + 1.25 * ee * Math.sin(2 * g);
+    }
+
+    private double longitudeRate(double t) {
+        double g = g0 + g1 * t;
+        return a1 + (2 * e * Math.cos(g) + 2 * 1.25 * ee * Math.cos(2 * g)) * g1;
+    }
+
+    private double longitudeAcceleration(double t) {
+        double g = g0 + g1 * t;
+        return -(2 * e * Math.sin(g) + 4 * 1.25 * ee * Math.sin(2 * g)) * g1 * g1;
+    }
+
+    public void enableTable(double start, double end, double spacing) {
+        // Interpolate between start and end (days since J2000.0) from a table with the given node spacing in days
+        // The Hermite error is about spacing^4/384 times the 4th derivative of the longitude (~3e-9 rad/day^4),
+        // so a spacing of 0.25 days gives about 3e-14 rad (0.25^4/384 * 3e-9), well under 1e-12 rad
+        int n = (int)Math.ceil((end - start) / spacing) + 1;
+        tableLongitude = new double[n];
+        tableRate = new double[n];
+        tableAcceleration = new double[n];
+        for(int i = 0; i < n; i++) {
+            double t = start + i * spacing;
+            tableLongitude[i] = unwrappedLongitude(t);
+            tableRate[i] = longitudeRate(t);
+            tableAcceleration[i] = longitudeAcceleration(t);
+        }
+        tableStart = start;
+        tableSpacing = spacing;
+        tableEnd = start + (n - 1) * spacing;
+    }
+
+    public void disableTable() {
+        tableLongitude = null;
+        tableRate = null;
+        tableAcceleration = null;
+    }
+
+    private double interpolate(double[] values, double[] derivatives, double t) {
+        // Cubic Hermite interpolation between the two table nodes around t
+        // Just below tableEnd x can round up to the last node, so i is clamped to keep i + 1 inside the table
+        double x = (t - tableStart) / tableSpacing;
+        int i = Math.min((int)x, values.length - 2);
+        double s = x - i;
+        double p0 = values[i];
+        double p1 = values[i + 1];
+        double m0 = derivatives[i] * tableSpacing;
+        double m1 = derivatives[i + 1] * tableSpacing;
+        double d = p1 - p0;
+        return p0 + s * (m0 + s * ((3 * d - 2 * m0 - m1) + s * (m0 + m1 - 2 * d)));
+    }
 }
@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+
+public class TransitIndex {
+    // Inverted index from HealPix pixel to the times of its transits
+    // Times are quantized to resolutionMicros and stored per pixel as varint-encoded differences to the previous transit,
+    // in linked chunks of CHUNK_SIZE bytes that are carved out of large shared slabs
+    // The last 4 bytes of every chunk hold the index of the next chunk of the same pixel
+    // Transits must be added in chronological order for each pixel
+    private static final int CHUNK_SIZE = 16;
+    private static final int CHUNK_PAYLOAD = CHUNK_SIZE - 4;
+    private static final int SLAB_BITS = 16;                 // 2^16 chunks, i.e. 1 MB, per slab
+    private static final int SLAB_MASK = (1 << SLAB_BITS) - 1;
+    private static final int NO_CHUNK = -1;
+
+    private long resolutionMicros;
+    private int[] head;
+    private int[] tail;
+    private byte[] tailFill;
+    private long[] last;
+    private int[] transits;
+
+    private byte[][] slabs;
+    private int nChunks;
+
+    public TransitIndex(int npix, long resolutionMicros) {
+        this.resolutionMicros = resolutionMicros;
+        head = new int[npix];
+        tail = new int[npix];
+        tailFill = new byte[npix];
+        last = new long[npix];
+        transits = new int[npix];
+        Arrays.fill(head, NO_CHUNK);
+        Arrays.fill(tail, NO_CHUNK);
+
+        slabs = new byte[16][];
+        nChunks = 0;
+    }
+
+    public TransitIndex(int npix) {
+        this(npix, 1);
+    }
+
+    public long getResolutionMicros() {
+        return resolutionMicros;
+    }
+
+    private int allocateChunk() {
+        int slab = nChunks >>> SLAB_BITS;
+        if(slab == slabs.length) {
+            slabs = Arrays.copyOf(slabs, 2 * slabs.length);
+        }
+        if(slabs[slab] == null) {
+            slabs[slab] = new byte[CHUNK_SIZE << SLAB_BITS];
+        }
+        int chunk = nChunks;
+        setNext(chunk, NO_CHUNK);
+        nChunks += 1;
+        return chunk;
+    }
+
+    private int getNext(int chunk) {
+        byte[] slab = slabs[chunk >>> SLAB_BITS];
+        int offset = (chunk & SLAB_MASK) * CHUNK_SIZE + CHUNK_PAYLOAD;
+        return (slab[offset] & 0xFF) | (slab[offset + 1] & 0xFF) << 8 | (slab[offset + 2] & 0xFF) << 16 | slab[offset + 3] << 24;
+    }
+
+    private void setNext(int chunk, int next) {
+        byte[] slab = slabs[chunk >>> SLAB_BITS];
+        int offset = (chunk & SLAB_MASK) * CHUNK_SIZE + CHUNK_PAYLOAD;
+        slab[offset] = (byte)next;
+        slab[offset + 1] = (byte)(next >>> 8);
+        slab[offset + 2] = (byte)(next >>> 16);
+        slab[offset + 3] = (byte)(next >>> 24);
+    }
+
+    private void appendByte(int pixel, int b) {
+        int chunk = tail[pixel];
+        if(chunk == NO_CHUNK || tailFill[pixel] == CHUNK_PAYLOAD) {
+            int next = allocateChunk();
+            if(chunk == NO_CHUNK) {
+                head[pixel] = next;
+            }
+            else {
+                setNext(chunk, next);
+            }
+            tail[pixel] = next;
+            tailFill[pixel] = 0;
+            chunk = next;
+        }
+        slabs[chunk >>> SLAB_BITS][(chunk & SLAB_MASK) * CHUNK_SIZE + tailFill[pixel]] = (byte)b;
+        tailFill[pixel] += 1;
+    }
+
+    public void add(int pixel, long micros) {
+        // Registers a transit of pixel at the given time in microseconds
+        long q = (micros + resolutionMicros / 2) / resolutionMicros;
+        long delta = q - last[pixel];
+        if(delta < 0) {
+            throw new IllegalArgumentException("Transits of pixel " + pixel + " must be added in chronological order");
+        }
+        while(delta >= 0x80) {
+            appendByte(pixel, (int)(delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        appendByte(pixel, (int)delta);
+        last[pixel] = q;
+        transits[pixel] += 1;
+    }
+
+    public int getNumberOfTransits(int pixel) {
+        return transits[pixel];
+    }
+
+    public long[] getTransitTimes(int pixel) {
+        // Transit times of pixel in microseconds, in chronological order
+        long[] times = new long[transits[pixel]];
+        int chunk = head[pixel];
+        int position = 0;
+        long q = 0;
+        for(int i = 0; i < times.length; i++) {
+            long delta = 0;
+            int shift = 0;
+            int b;
+            do {
+                if(position == CHUNK_PAYLOAD) {
+                    chunk = getNext(chunk);
+                    position = 0;
+                }
+                b = slabs[chunk >>> SLAB_BITS][(chunk & SLAB_MASK) * CHUNK_SIZE + position];
+                position += 1;
+                delta |= (long)(b & 0x7F) << shift;
+                shift += 7;
+            } while((b & 0x80) != 0);
+            q += delta;
+            times[i] = q * resolutionMicros;
+        }
+        return times;
+    }
+
+    public long getMemoryUsage() {
+        // Approximate size of the index in bytes
+        long perPixel = 4L + 4 + 1 + 8 + 4;
+        long slabBytes = 0;
+        for(byte[] slab: slabs) {
+            if(slab != null) {
+                slabBytes += slab.length;
+            }
+        }
+        return perPixel * head.length + slabBytes;
+    }
+}
@@ -0,0 +1,40 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestAttitudeBuffer {
+    private void fill(AttitudeBuffer b, int n) {
+        for(int i=0; i<n; i++) {
+            b.add(i, 0, 0.1 * i, 0.2 * i, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    @Test
+    public void testPartiallyFilled() {
+        AttitudeBuffer b = new AttitudeBuffer(10);
+        fill(b, 4);
+        assertEquals("Size", b.size(), 4);
+        assertEquals("Oldest t", b.get(0, AttitudeBuffer.T), 0.0, 1e-10);
+        assertEquals("Latest t", b.getLatest(AttitudeBuffer.T), 3.0, 1e-10);
+    }
+
+    @Test
+    public void testWrapAround() {
+        AttitudeBuffer b = new AttitudeBuffer(10, true);
+        fill(b, 25);
+        assertEquals("Size", b.size(), 10);
+        assertEquals("Count", b.getCount(), 25);
+        for(int i=0; i<10; i++) {
+            assertEquals("t", b.get(i, AttitudeBuffer.T), 15.0 + i, 1e-10);
+            assertEquals("Nu", b.get(i, AttitudeBuffer.NU), 0.1 * (15 + i), 1e-10);
+            assertEquals("Omega", b.get(i, AttitudeBuffer.OMEGA), 0.2 * (15 + i), 1e-10);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() {
+        AttitudeBuffer b = new AttitudeBuffer(10);
+        fill(b, 3);
+        b.get(3, AttitudeBuffer.T);
+    }
+}
@@ -1,3 +1,8 @@
+import java.util.Random;
+
+import org.apache.commons.math3.complex.Quaternion;
+import org.apache.commons.math3.geometry.euclidean.threed.Rotation;
+import org.apache.commons.math3.geometry.euclidean.threed.RotationConvention;
 import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
 import static org.junit.Assert.*;
 
@@ -45,4 +50,107 @@ public class TestAttitudeCalculator {
         assertEquals("FoV2 phi", fov2sc.getPhi(), Math.PI/2.0, 1e-10);
         assertEquals("FoV2 theta", fov2sc.getTheta(), -a.getGamma()/2.0, 1e-10);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPrecomputedFoVs() {
+        double[] sun = new double[3];
+        double[] spinAxis = new double[3];
+        double[] scanDirection = new double[3];
+        double[] reference = new double[24];
+        double[] corners = new double[24];
+
+        AttitudeCalculator b = new AttitudeCalculator(Math.toRadians(45));
+        for(int i=0; i<100; i++) {
+            b.calculateDirections(0.07 * i, 0.3 * i, 1.1 * i, sun, spinAxis, scanDirection);
+            b.calculateFoVs(spinAxis, scanDirection, reference);
+            b.calculateFoVs(corners);
+            assertArrayEquals("FoV corners", reference, corners, 1e-14);
+        }
+    }
+
+    private static Quaternion quaternionFromAngleAndVector(double angle, Vector3D vector) {
+        return new Quaternion(Math.cos(-angle/2.0), vector.scalarMultiply(Math.sin(-angle/2.0)).toArray());
+    }
+
+    private static Vector3D[] referenceFieldOfView(Vector3D axis, Vector3D direction, double fovAlong, double fovAcross) {
+        Vector3D v1 = new Rotation(axis, fovAlong/2.0, RotationConvention.VECTOR_OPERATOR).applyTo(direction);
+        Vector3D axis1 = v1.crossProduct(axis);
+        Vector3D v2 = new Rotation(axis, -fovAlong/2.0, RotationConvention.VECTOR_OPERATOR).applyTo(direction);
+        Vector3D axis2 = v2.crossProduct(axis);
+        return new Vector3D[] {
+                new Rotation(axis1, fovAcross/2.0, RotationConvention.VECTOR_OPERATOR).applyTo(v1),
+                new Rotation(axis1, -fovAcross/2.0, RotationConvention.VECTOR_OPERATOR).applyTo(v1),
+                new Rotation(axis2, -fovAcross/2.0, RotationConvention.VECTOR_OPERATOR).applyTo(v2),
+                new Rotation(axis2, fovAcross/2.0, RotationConvention.VECTOR_OPERATOR).applyTo(v2)};
+    }
+
+    private static Vector3D[] referenceAttitude(double solarAspectAngle, double epsilon, double solarLongitude, double nu, double omega) {
+        // The original attitude calculation with Apache commons math quaternions and rotations;
+        // returns the Sun direction, spin axis, scan direction and the eight FoV corners
+        Quaternion q01 = quaternionFromAngleAndVector(solarLongitude, Vector3D.PLUS_K).multiply(quaternionFromAngleAndVector(epsilon, Vector3D.PLUS_I));
+        Quaternion q12 = quaternionFromAngleAndVector(nu - Math.PI/2.0, Vector3D.PLUS_I).multiply(q01);
+        Quaternion q123 = quaternionFromAngleAndVector(Math.PI/2.0 - solarAspectAngle, Vector3D.PLUS_J).multiply(q12);
+        Quaternion q1234 = quaternionFromAngleAndVector(omega, Vector3D.PLUS_K).multiply(q123);
+
+        Rotation r0 = new Rotation(q01.getQ0(), q01.getQ1(), q01.getQ2(), q01.getQ3(), true);
+        Rotation r = new Rotation(q1234.getQ0(), q1234.getQ1(), q1234.getQ2(), q1234.getQ3(), true);
+        Vector3D sun = r0.applyTo(Vector3D.PLUS_I);
+        Vector3D spinAxis = r.applyTo(Vector3D.PLUS_K);
+        Vector3D scanDirection = r.applyTo(Vector3D.PLUS_I);
+
+        double gamma = Math.toRadians(106.5);
+        double fovAlong = Math.toRadians(0.74);
+        double fovAcross = Math.toRadians(0.66);
+        Vector3D leading = new Rotation(spinAxis, gamma/2.0, RotationConvention.VECTOR_OPERATOR).applyTo(scanDirection);
+        Vector3D following = new Rotation(spinAxis, -gamma/2.0, RotationConvention.VECTOR_OPERATOR).applyTo(scanDirection);
+        Vector3D[] fov1 = referenceFieldOfView(spinAxis, leading, fovAlong, fovAcross);
+        Vector3D[] fov2 = referenceFieldOfView(spinAxis, following, fovAlong, fovAcross);
+
+        Vector3D[] res = new Vector3D[11];
+        res[0] = sun;
+        res[1] = spinAxis;
+        res[2] = scanDirection;
+        System.arraycopy(fov1, 0, res, 3, 4);
+        System.arraycopy(fov2, 0, res, 7, 4);
+        return res;
+    }
+
+    private static void assertVector(String msg, double[] actual, int offset, Vector3D expected, double tolerance) {
+        assertEquals(msg + " x", actual[offset], expected.getX(), tolerance);
+        assertEquals(msg + " y", actual[offset + 1], expected.getY(), tolerance);
+        assertEquals(msg + " z", actual[offset + 2], expected.getZ(), tolerance);
+    }
+
+    @Test
+    public void testMatchesRotations() {
+        // The primitive attitude engine against the original Rotation based calculation at random angles;
+        // the operations are the same, so only rounding differs, by a few ulps of the unit vectors.
+        // The precomputed FoV corners are rotated in one step instead of four and differ a little more
+        double[] sun = new double[3];
+        double[] spinAxis = new double[3];
+        double[] scanDirection = new double[3];
+        double[] corners = new double[24];
+        double[] precomputed = new double[24];
+
+        double solarAspectAngle = Math.toRadians(45);
+        AttitudeCalculator b = new AttitudeCalculator(solarAspectAngle);
+        Random random = new Random(42);
+        for(int i=0; i<10000; i++) {
+            double solarLongitude = 2 * Math.PI * random.nextDouble();
+            double nu = 2 * Math.PI * random.nextDouble();
+            double omega = 2 * Math.PI * random.nextDouble();
+            Vector3D[] reference = referenceAttitude(solarAspectAngle, b.getEpsilon(), solarLongitude, nu, omega);
+
+            b.calculateDirections(solarLongitude, nu, omega, sun, spinAxis, scanDirection);
+            b.calculateFoVs(spinAxis, scanDirection, corners);
+            b.calculateFoVs(precomputed);
+            assertVector("Sun", sun, 0, reference[0], 1e-15);
+            assertVector("Spin axis", spinAxis, 0, reference[1], 1e-15);
+            assertVector("Scan direction", scanDirection, 0, reference[2], 1e-15);
+            for(int k=0; k<8; k++) {
+                assertVector("FoV corner " + k, corners, 3 * k, reference[3 + k], 1e-15);
+                assertVector("Precomputed FoV corner " + k, precomputed, 3 * k, reference[3 + k], 2e-15);
+            }
+        }
+    }
+}
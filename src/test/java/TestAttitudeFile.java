@@ -0,0 +1,48 @@
+import java.io.File;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class TestAttitudeFile {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        String path = new File(folder.getRoot(), "attitude.bin").getPath();
+        int n = 20000;
+        double step = 1.0/(24*60);
+
+        AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45));
+        double[] q = new double[4];
+        try(AttitudeFileWriter w = new AttitudeFileWriter(path, n + 100)) {
+            for(int i=0; i<n; i++) {
+                a.calculateDirections(0.001 * i, 0.01 * i, 0.1 * i);
+                a.getAttitudeQuaternion(q);
+                w.write(5113.5 + i * step, 0.01 * i, 0.1 * i, 0.001 * i, q);
+            }
+        }
+
+        try(AttitudeFileReader r = new AttitudeFileReader(path)) {
+            assertEquals("Rows", r.getRows(), n);
+            for(int i=0; i<n; i+=997) {
+                a.calculateDirections(0.001 * i, 0.01 * i, 0.1 * i);
+                double[] ref = new double[4];
+                a.getAttitudeQuaternion(ref);
+                r.getQuaternion(i, q);
+                assertEquals("t", r.getT(i), 5113.5 + i * step, 0);
+                assertEquals("Nu", r.getNu(i), 0.01 * i, 0);
+                assertEquals("Omega", r.getOmega(i), 0.1 * i, 0);
+                assertEquals("Solar longitude", r.getSolarLongitude(i), 0.001 * i, 0);
+                assertArrayEquals("Quaternion", q, ref, 0);
+            }
+            assertEquals("Index of first time", r.indexOf(5113.5), 0);
+            assertEquals("Index between steps", r.indexOf(5113.5 + 1234.5 * step), 1234);
+            assertEquals("Index after last time", r.indexOf(6000), n - 1);
+            assertEquals("Index before first time", r.indexOf(5000), -1);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.ArrayList;
+
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.FixedStepHandler;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestAttitudeService {
+    @Test
+    public void testMatchesDenseOutput() {
+        // Compare with the dense output sampled by a StepNormalizer in the same integration
+        final ArrayList<double[]> samples = new ArrayList<>();
+        FixedStepHandler handler = new FixedStepHandler() {
+            public void init(double t0, double[] y0, double t) {
+            }
+
+            public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
+                samples.add(new double[] {t, y[0], y[1]});
+            }
+        };
+        AttitudeService service = new AttitudeService(16);
+
+        double startTime = 14*365.25;
+        double[] y = new double[] {Math.PI/2.0, Math.PI/2.0};
+        DormandPrince853Integrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        integrator.addStepHandler(service);
+        integrator.addStepHandler(new StepNormalizer(1.0/(24*60*7), handler));
+        integrator.integrate(new NSLIntegrator(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400), startTime, y, startTime + 3, y);
+
+        assertTrue("Segments", service.getNumberOfSegments() > 1);
+        assertEquals("Start time", service.getStartTime(), startTime, 0);
+        assertEquals("End time", service.getEndTime(), startTime + 3, 1e-12);
+
+        double[] state = new double[2];
+        for(double[] sample: samples) {
+            service.getState(sample[0], state);
+            assertEquals("Nu", state[0], sample[1], 1e-10);
+            assertEquals("Omega", state[1], sample[2], 1e-10);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutsideInterval() {
+        new AttitudeService(16).getNu(0);
+    }
+}
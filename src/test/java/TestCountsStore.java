@@ -0,0 +1,89 @@
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class TestCountsStore {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void checkPromotion(CountsStore counts) {
+        counts.set(3, 7);
+        counts.set(5, 0xFFFE);
+        assertEquals("Narrow counts", counts.getBytesPerCount(), 2);
+        counts.increment(5);
+        assertEquals("Largest 16 bit count", counts.get(5), 0xFFFF);
+        assertEquals("Still narrow", counts.getBytesPerCount(), 2);
+
+        counts.increment(5);
+        assertEquals("Promoted", counts.getBytesPerCount(), 4);
+        assertEquals("Promoted count", counts.get(5), 0x10000);
+        assertEquals("Other counts kept", counts.get(3), 7);
+        assertEquals("Empty count", counts.get(4), 0);
+
+        counts.set(4, 1 << 30);
+        assertEquals("Wide count", counts.get(4), 1 << 30);
+    }
+
+    @Test
+    public void testHeapPromotion() {
+        checkPromotion(new HeapCounts(10));
+    }
+
+    @Test
+    public void testOffHeapPromotion() {
+        checkPromotion(new OffHeapCounts(10));
+    }
+
+    @Test
+    public void testMappedPromotion() throws Exception {
+        String path = folder.getRoot().getPath() + "/counts";
+        checkPromotion(new OffHeapCounts(10, path));
+        assertTrue("32 bit file", new java.io.File(path + ".32").exists());
+        assertFalse("16 bit file removed", new java.io.File(path + ".16").exists());
+    }
+
+    @Test
+    public void testSegments() {
+        // More than one 2^30 byte segment, with indices beyond 2^31
+        long size = (1L << 31) + 10;
+        OffHeapCounts counts;
+        try {
+            counts = new OffHeapCounts(size, folder.getRoot().getPath() + "/large");
+        }
+        catch(IllegalStateException e) {
+            // Not enough address space or disk here: reported as skipped, not as passed
+            Assume.assumeNoException(e);
+            return;
+        }
+        counts.increment(size - 1);
+        counts.increment(size - 1);
+        counts.increment(1L << 29);
+        assertEquals("Last count", counts.get(size - 1), 2);
+        assertEquals("Segment boundary", counts.get(1L << 29), 1);
+        assertEquals("Size", counts.size(), size);
+    }
+
+    @Test
+    public void testSegmentPromotion() throws Exception {
+        // Segments of 64 bytes, i.e. 32 narrow or 16 wide counts: promotion copies every count into other segments
+        int size = 1000;
+        CountsStore[] stores = {new OffHeapCounts(size, null, 6), new OffHeapCounts(size, folder.getRoot().getPath() + "/small", 6)};
+        for(CountsStore counts: stores) {
+            for(int i = 0; i < size; i++) {
+                counts.set(i, (i * 7) % 1000);
+            }
+            counts.set(size - 1, 0xFFFF);
+            assertEquals("Narrow counts", counts.getBytesPerCount(), 2);
+            counts.increment(size - 1);
+            assertEquals("Promoted", counts.getBytesPerCount(), 4);
+            for(int i = 0; i < size - 1; i++) {
+                assertEquals("Count " + i, counts.get(i), (i * 7) % 1000);
+            }
+            assertEquals("Promoted count", counts.get(size - 1), 0x10000);
+        }
+    }
+}
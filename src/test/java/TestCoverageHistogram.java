@@ -0,0 +1,76 @@
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.FixedStepHandler;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestCoverageHistogram {
+    private double lastTime;
+
+    private void integrate(final HealPixDensityMapper h, CoverageTarget target, double duration) {
+        final AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        final Sun sun = new Sun();
+        FixedStepHandler handler = new FixedStepHandler() {
+            public void init(double t0, double[] y0, double t) {
+            }
+
+            public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
+                SphericalCoordinates[] scs = a.calculateDirections(sun.solarLongitude(t), y[0], y[1]);
+                h.nextStep(t, scs[0], scs[1]);
+                Vector3D[][] fovs = a.calculateFoVs();
+                h.addRectangularArea(fovs[0]);
+                h.addRectangularArea(fovs[1]);
+                lastTime = t;
+            }
+        };
+
+        double startTime = 14*365.25;
+        double[] y = new double[] {Math.PI/2.0, Math.PI/2.0};
+        DormandPrince853Integrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        integrator.addStepHandler(new StepNormalizer(1.0/(24*60), handler));
+        if(target != null) {
+            integrator.addEventHandler(target, 1.0, 1.0e-6, 100);
+        }
+        integrator.integrate(new NSLIntegrator(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400), startTime, y, startTime + duration, y);
+    }
+
+    @Test
+    public void testMatchesCounts() throws Exception {
+        HealPixDensityMapper h = new HealPixDensityMapper(16);
+        CoverageHistogram histogram = h.getCoverageHistogram();
+        histogram.addThreshold(2);
+        integrate(h, null, 0.5);
+
+        CoverageMetrics expected = CoverageMetrics.fromCounts(h.getCounts());
+        assertTrue("Some pixels are covered", histogram.getMax() > 0);
+        assertEquals("Min", histogram.getMin(), expected.getMin());
+        assertEquals("Max", histogram.getMax(), expected.getMax());
+        assertEquals("Mean", histogram.getMean(), expected.getMean(), 1e-12);
+        assertEquals("Median", histogram.getMedian(), expected.getPercentile(50));
+        assertEquals("Percentile 90", histogram.getPercentile(90), expected.getPercentile(90));
+        for(int n = 0; n <= expected.getMax() + 1; n++) {
+            assertEquals("Fraction at least " + n, histogram.getFractionAtLeast(n), 1 - expected.getFractionBelow(n), 1e-12);
+        }
+
+        // Rebuilding from the counts gives the same histogram
+        HealPixDensityMapper restored = new HealPixDensityMapper(16);
+        restored.restore(h.getCountsStore(), h.getCurrentPixels());
+        assertEquals("Restored sum", restored.getCoverageHistogram().getSum(), histogram.getSum());
+        assertEquals("Restored fraction", restored.getCoverageHistogram().getFractionAtLeast(2), histogram.getFractionAtLeast(2), 0);
+    }
+
+    @Test
+    public void testCoverageTarget() throws Exception {
+        HealPixDensityMapper h = new HealPixDensityMapper(16);
+        CoverageTarget target = new CoverageTarget(h.getCoverageHistogram(), 0.1, 1);
+        integrate(h, target, 2.0);
+
+        assertTrue("Target reached", target.isReached());
+        assertTrue("Stopped early", lastTime < 14*365.25 + 2.0);
+        assertTrue("Fraction covered", h.getCoverageHistogram().getFractionAtLeast(1) >= 0.1);
+    }
+}
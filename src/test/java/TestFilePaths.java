@@ -0,0 +1,16 @@
+import java.io.File;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestFilePaths {
+    @Test
+    public void testExpand() {
+        String home = System.getProperty("user.home");
+        assertEquals("Home", FilePaths.expand("~" + File.separator + "gaia"), home + File.separator + "gaia");
+        assertEquals("Absolute", FilePaths.expand(File.separator + "tmp"), File.separator + "tmp");
+        assertEquals("Relative", FilePaths.expand("gaia~"), "gaia~");
+        assertEquals("Other user", FilePaths.expand("~gaia"), "~gaia");
+    }
+}
@@ -0,0 +1,183 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class TestFrameSink {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BufferedImage createImage() {
+        BufferedImage img = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        img.setRGB(0, 0, 0xFFFFFF);
+        img.setRGB(1, 0, 0xFF0000);
+        img.setRGB(2, 0, 0x0000FF);
+        return img;
+    }
+
+    @Test
+    public void testY4M() throws Exception {
+        File file = folder.newFile("movie.y4m");
+        RawVideoSink sink = new RawVideoSink(file.getPath(), RawVideoSink.Format.Y4M, 4, 2, 25);
+        byte[] frame = sink.encode(createImage());
+        sink.write(frame, 0);
+        sink.write(frame, 1);
+        sink.close();
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        String header = "YUV4MPEG2 W4 H2 F25:1 Ip A1:1 C444 XCOLORRANGE=FULL\n";
+        assertEquals("Size", data.length, header.length() + 2 * sink.getFrameSize());
+        assertEquals("Header", new String(data, 0, header.length(), StandardCharsets.US_ASCII), header);
+        assertEquals("Frame marker", new String(data, header.length(), 6, StandardCharsets.US_ASCII), "FRAME\n");
+
+        int y = header.length() + 6;
+        assertEquals("White Y", data[y] & 0xFF, 255);
+        assertEquals("White Cb", data[y + 8] & 0xFF, 128);
+        assertEquals("White Cr", data[y + 16] & 0xFF, 128);
+        assertEquals("Black Y", data[y + 3] & 0xFF, 0);
+        assertEquals("Red Cr", data[y + 17] & 0xFF, 255);
+        assertEquals("Blue Cb", data[y + 10] & 0xFF, 255);
+    }
+
+    @Test
+    public void testRGB() throws Exception {
+        File file = folder.newFile("movie.rgb");
+        RawVideoSink sink = new RawVideoSink(file.getPath(), RawVideoSink.Format.RGB, 4, 2, 25);
+        sink.write(sink.encode(createImage()), 0);
+        sink.close();
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        assertEquals("Size", data.length, 3 * 8);
+        assertArrayEquals("First pixels", new byte[] {(byte)255, (byte)255, (byte)255, (byte)255, 0, 0, 0, 0, (byte)255},
+                java.util.Arrays.copyOf(data, 9));
+    }
+
+    @Test
+    public void testPipelineOrder() throws Exception {
+        // Encoding takes a random time on several threads, but frames reach the sink in order
+        final List<Integer> written = new ArrayList<>();
+        final Random random = new Random(3);
+        FrameSink sink = new FrameSink() {
+            public byte[] encode(BufferedImage img) {
+                try {
+                    Thread.sleep(random.nextInt(50));
+                }
+                catch(InterruptedException e) {
+                    System.out.println("Error: " + e);
+                }
+                return new byte[0];
+            }
+
+            public void write(byte[] data, int frameNumber) {
+                written.add(frameNumber);
+            }
+
+            public void close() {
+            }
+        };
+
+        HealPixDensityMapper h = new HealPixDensityMapper(1920, 1080, 1600, 800, new HammerProjection(0, true), 8, folder.getRoot().getPath());
+        h.setFrameSink(sink);
+        SphericalCoordinates sc = new SphericalCoordinates(1, 1, 1);
+        h.nextStep(0, sc, sc);
+        FramePipeline pipeline = new FramePipeline(h, 3, 4);
+        for(int n = 0; n < 8; n++) {
+            pipeline.submit(n);
+        }
+        pipeline.close();
+
+        assertEquals("Frames", written.size(), 8);
+        for(int n = 0; n < 8; n++) {
+            assertEquals("Order", (int)written.get(n), n);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedSnapshot() throws Exception {
+        // A frame whose snapshot fails gives its slot back, so later frames do not block forever
+        HealPixDensityMapper h = new HealPixDensityMapper(8) {
+            public FrameSnapshot snapshot(int n, int[] buffer) {
+                throw new IllegalStateException("Snapshot " + n);
+            }
+        };
+        FramePipeline pipeline = new FramePipeline(h, 1, 1);
+        for(int n = 0; n < 3; n++) {
+            try {
+                pipeline.submit(n);
+                fail("Snapshot must fail");
+            }
+            catch(IllegalStateException e) {
+                assertEquals("Error", e.getMessage(), "Snapshot " + n);
+            }
+        }
+        pipeline.drain();
+        pipeline.close();
+
+        // The pipeline threads do not keep the JVM alive
+        for(Thread t: Thread.getAllStackTraces().keySet()) {
+            if(t.getName().startsWith("frame-")) {
+                assertTrue("Daemon " + t.getName(), t.isDaemon());
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedWriter() throws Exception {
+        // A sink that throws stops the writer thread; the pipeline reports it instead of blocking on its slots
+        FrameSink sink = new FrameSink() {
+            public byte[] encode(BufferedImage img) {
+                return new byte[0];
+            }
+
+            public void write(byte[] data, int frameNumber) {
+                throw new IllegalArgumentException("Frame " + frameNumber);
+            }
+
+            public void close() {
+            }
+        };
+        HealPixDensityMapper h = new HealPixDensityMapper(1920, 1080, 1600, 800, new HammerProjection(0, true), 8, folder.getRoot().getPath());
+        h.setFrameSink(sink);
+        SphericalCoordinates sc = new SphericalCoordinates(1, 1, 1);
+        h.nextStep(0, sc, sc);
+        FramePipeline pipeline = new FramePipeline(h, 1, 2);
+        int submitted = 0;
+        try {
+            for(int n = 0; n < 10; n++) {
+                pipeline.submit(n);
+                submitted += 1;
+            }
+            fail("Submit must fail");
+        }
+        catch(IllegalStateException e) {
+            assertTrue("Cause", e.getCause() instanceof IllegalArgumentException);
+        }
+        assertTrue("Frames submitted before the failure " + submitted, submitted <= 3);
+        try {
+            pipeline.drain();
+            fail("Drain must fail");
+        }
+        catch(IllegalStateException e) {
+            assertTrue("Cause", e.getCause() instanceof IllegalArgumentException);
+        }
+        try {
+            pipeline.close();
+            fail("Close must fail");
+        }
+        catch(IllegalStateException e) {
+            assertTrue("Cause", e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
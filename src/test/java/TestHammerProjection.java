@@ -132,5 +132,84 @@ public class TestHammerProjection {
         double[] r = p2.inverseProjectLongLat(d[0], d[1]);
         assertArrayEquals("Some random inverse projection inverse longitude", r, s, 1e-10);
     }
-}
 
+    @Test
+    public void testBatch() {
+        // The batch methods must give exactly the single point results, including NaN outside the projection;
+        // the Vector API kernels may differ in the last bit, see VectorRenderKernels
+        double tolerance = RenderKernels.create().getName().equals("scalar") ? 0.0 : 1e-12;
+        int n = 200;
+        double[] x = new double[n + 3];
+        double[] y = new double[n + 3];
+        for(int i = 0; i < n; i++) {
+            x[i + 3] = p2.getXRange()[0] + (p2.getXRange()[1] - p2.getXRange()[0]) * i / (n - 1);
+            y[i + 3] = p2.getYRange()[0] + (p2.getYRange()[1] - p2.getYRange()[0]) * ((i * 37) % n) / (n - 1);
+        }
+        double[] theta = new double[n + 5];
+        double[] phi = new double[n + 5];
+        p2.inverseProjectThetaPhi(x, y, 3, theta, phi, 5, n);
+        int outside = 0;
+        for(int i = 0; i < n; i++) {
+            double[] ref = p2.inverseProjectThetaPhi(x[i + 3], y[i + 3]);
+            assertEquals("Batch theta " + i, theta[i + 5], ref[0], tolerance);
+            assertEquals("Batch phi " + i, phi[i + 5], ref[1], tolerance);
+            if(Double.isNaN(ref[0])) {
+                outside += 1;
+            }
+        }
+        assertTrue("Points outside", outside > 0 && outside < n);
+
+        double[] px = new double[n];
+        double[] py = new double[n];
+        for(int i = 0; i < n; i++) {
+            theta[i] = 2 * Math.PI * i / n;
+            phi[i] = Math.PI * (i + 0.5) / n;
+        }
+        p2.projectThetaPhi(theta, phi, 0, px, py, 0, n);
+        for(int i = 0; i < n; i++) {
+            double[] ref = p2.projectThetaPhi(theta[i], phi[i]);
+            assertEquals("Batch x " + i, px[i], ref[0], 0.0);
+            assertEquals("Batch y " + i, py[i], ref[1], 0.0);
+        }
+    }
+
+    @Test
+    public void testDefaultBatch() {
+        // A projection that only implements the single point methods gets the batch methods from the interface
+        Projection p = new Projection() {
+            public double[] projectLongLat(double longitude, double latitude) {
+                return p1.projectLongLat(longitude, latitude);
+            }
+
+            public double[] projectThetaPhi(double theta, double phi) {
+                return p1.projectThetaPhi(theta, phi);
+            }
+
+            public double[] inverseProjectLongLat(double x, double y) {
+                return p1.inverseProjectLongLat(x, y);
+            }
+
+            public double[] inverseProjectThetaPhi(double x, double y) {
+                return p1.inverseProjectThetaPhi(x, y);
+            }
+
+            public double[] getXRange() {
+                return p1.getXRange();
+            }
+
+            public double[] getYRange() {
+                return p1.getYRange();
+            }
+        };
+        double[] x = {0.5, -1.0, 2.8};
+        double[] y = {0.2, 0.7, 1.4};
+        double[] theta = new double[3];
+        double[] phi = new double[3];
+        double[] refTheta = new double[3];
+        double[] refPhi = new double[3];
+        p.inverseProjectThetaPhi(x, y, 0, theta, phi, 0, 3);
+        p1.inverseProjectThetaPhi(x, y, 0, refTheta, refPhi, 0, 3);
+        assertArrayEquals("Default theta", theta, refTheta, 0.0);
+        assertArrayEquals("Default phi", phi, refPhi, 0.0);
+    }
+}
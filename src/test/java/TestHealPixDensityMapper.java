@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.FixedStepHandler;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+import healpix.essentials.Scheme;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class TestHealPixDensityMapper {
+    private HealPixDensityMapper h;
+    private HealPixWrapper hp;
+    private int[] referenceCounts;
+    private int nside = 64;
+
+    @Before
+    public void setUp() {
+        try {
+            h = new HealPixDensityMapper(1920, 1080, 1600, 800, new HammerProjection(0, true), nside, "/tmp");
+            hp = new HealPixWrapper(nside, Scheme.RING);
+        }
+        catch(Exception e) {
+            System.out.println("Error: " + e);
+        }
+        referenceCounts = new int[(int)hp.getNpix()];
+    }
+
+    @Test
+    public void testCountsMatchListBasedDeduplication() {
+        // Integrate a shortened mission (a quarter of a day at 1 minute steps) and feed both the mapper
+        // and a reference implementation using the old ArrayList<Long> deduplication
+        final AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        final Sun sun = new Sun();
+        final ArrayList<ArrayList<Long>> previous = new ArrayList<>();
+        previous.add(new ArrayList<Long>());
+        h.enableTransitIndex(60000000L);
+
+        FixedStepHandler handler = new FixedStepHandler() {
+            public void init(double t0, double[] y0, double t) {
+            }
+
+            public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
+                SphericalCoordinates[] scs = a.calculateDirections(sun.apparentLongitude(t)[1], y[0], y[1]);
+                h.nextStep(t, scs[0], scs[1]);
+                ArrayList<Long> current = new ArrayList<>();
+
+                Vector3D[][] fovs = a.calculateFoVs();
+                for(Vector3D[] fov: fovs) {
+                    h.addRectangularArea(fov);
+                    try {
+                        for(long p: hp.queryRectangle(fov).toArray()) {
+                            if(!previous.get(0).contains(p)) {
+                                referenceCounts[(int)p] += 1;
+                            }
+                            current.add(p);
+                        }
+                    }
+                    catch(Exception e) {
+                        System.out.println("Error: " + e);
+                    }
+                }
+                previous.set(0, current);
+            }
+        };
+
+        double startTime = 14*365.25;
+        double[] y = new double[] {Math.PI/2.0, Math.PI/2.0};
+        DormandPrince853Integrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        integrator.addStepHandler(new StepNormalizer(1.0/(24*60), handler));
+        integrator.integrate(new NSLIntegrator(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400), startTime, y, startTime + 0.25, y);
+
+        int total = 0;
+        for(int c: referenceCounts) {
+            total += c;
+        }
+        assertTrue("Some pixels are covered", total > 0);
+        assertArrayEquals("Counts", referenceCounts, h.getCounts());
+
+        // Every counted transit is in the index, at a time on the 1 minute grid of the run
+        TransitIndex index = h.getTransitIndex();
+        for(int p = 0; p < referenceCounts.length; p++) {
+            long[] times = index.getTransitTimes(p);
+            assertEquals("Transits", times.length, referenceCounts[p]);
+            for(long time: times) {
+                assertTrue("Transit time", time >= Math.round(startTime * 86400e6) && time <= Math.round((startTime + 0.25) * 86400e6));
+            }
+        }
+    }
+}
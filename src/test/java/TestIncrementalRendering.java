@@ -0,0 +1,64 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.FixedStepHandler;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestIncrementalRendering {
+    private static int[] getData(BufferedImage img) {
+        return ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+    }
+
+    @Test
+    public void testMatchesFullRendering() throws Exception {
+        // Frames every 10 minutes for two hours, rendered incrementally and in full
+        final HealPixDensityMapper full = new HealPixDensityMapper(1920, 1080, 1600, 800, new HammerProjection(0, true), 16, "/tmp");
+        final HealPixDensityMapper incremental = new HealPixDensityMapper(1920, 1080, 1600, 800, new HammerProjection(0, true), 16, "/tmp");
+        incremental.setIncrementalRendering(true);
+        final AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        final Sun sun = new Sun();
+        final int[] frames = new int[1];
+
+        FixedStepHandler handler = new FixedStepHandler() {
+            private int step = 0;
+
+            public void init(double t0, double[] y0, double t) {
+            }
+
+            public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
+                SphericalCoordinates[] scs = a.calculateDirections(sun.solarLongitude(t), y[0], y[1]);
+                Vector3D[][] fovs = a.calculateFoVs();
+                for(HealPixDensityMapper h: new HealPixDensityMapper[] {full, incremental}) {
+                    h.nextStep(t, scs[0], scs[1]);
+                    h.addRectangularArea(fovs[0]);
+                    h.addRectangularArea(fovs[1]);
+                }
+                if(step % 10 == 0) {
+                    try {
+                        assertArrayEquals("Frame " + step, getData(full.renderFrame(full.snapshot(step, null))),
+                                getData(incremental.renderFrame(incremental.snapshot(step, null))));
+                        frames[0] += 1;
+                    }
+                    catch(Exception e) {
+                        fail("Error: " + e);
+                    }
+                }
+                step += 1;
+            }
+        };
+
+        double startTime = 14*365.25;
+        double[] y = new double[] {Math.PI/2.0, Math.PI/2.0};
+        DormandPrince853Integrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        integrator.addStepHandler(new StepNormalizer(1.0/(24*60), handler));
+        integrator.integrate(new NSLIntegrator(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400), startTime, y, startTime + 2.0/24, y);
+        assertTrue("Frames", frames[0] >= 12);
+    }
+}
@@ -0,0 +1,242 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.FixedStepHandler;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+import healpix.essentials.RangeSet;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class TestMissionCheckpoint {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MissionCheckpoint createCheckpoint(int step, int nranges) {
+        return createCheckpoint(step, nranges, 3072);
+    }
+
+    private MissionCheckpoint createCheckpoint(int step, int nranges, int npix) {
+        CountsStore counts = CountsStore.create(npix);
+        for(int i=0; i<npix; i++) {
+            counts.set(i, (i * 7 + step) % 13);
+        }
+        counts.set(npix - 1, 70000);
+        RangeSet pixels = new RangeSet();
+        for(int i=0; i<nranges; i++) {
+            pixels.append(10 * i, 10 * i + 3);
+        }
+        return new MissionCheckpoint(5113.5 + step, 1.25, 2.5, 5113.5, step, step / 10, counts, pixels);
+    }
+
+    private void checkCounts(CountsStore actual, CountsStore expected) {
+        assertEquals("Number of counts", actual.size(), expected.size());
+        for(long i=0; i<expected.size(); i++) {
+            assertEquals("Count " + i, actual.get(i), expected.get(i));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        String path = new File(folder.getRoot(), "checkpoint").getPath();
+        CheckpointWriter w = new CheckpointWriter(path);
+        MissionCheckpoint c = createCheckpoint(1440, 5);
+        w.write(c);
+
+        MissionCheckpoint r = MissionCheckpoint.read(path);
+        assertEquals("t", r.getT(), c.getT(), 0);
+        assertEquals("Nu", r.getNu(), c.getNu(), 0);
+        assertEquals("Omega", r.getOmega(), c.getOmega(), 0);
+        assertEquals("Start time", r.getStartTime(), c.getStartTime(), 0);
+        assertEquals("Step", r.getStep(), c.getStep());
+        assertEquals("Frame number", r.getFrameNumber(), c.getFrameNumber());
+        checkCounts(r.getCounts(), c.getCounts());
+        assertArrayEquals("Last step pixels", r.getLastStepPixels().toArray(), c.getLastStepPixels().toArray());
+    }
+
+    @Test
+    public void testChunks() throws Exception {
+        // Counts over several chunks, the last one partial, written over a larger earlier checkpoint
+        String path = new File(folder.getRoot(), "checkpoint").getPath();
+        CheckpointWriter w = new CheckpointWriter(path);
+        w.write(createCheckpoint(1440, 5000, 3 * MissionCheckpoint.CHUNK_SIZE));
+        w.write(createCheckpoint(2880, 3, 12));
+        MissionCheckpoint c = createCheckpoint(4320, 100, 2 * MissionCheckpoint.CHUNK_SIZE + 17);
+        w.write(c);
+
+        MissionCheckpoint r = MissionCheckpoint.read(path);
+        assertEquals("Step", r.getStep(), 4320);
+        checkCounts(r.getCounts(), c.getCounts());
+        assertArrayEquals("Last step pixels", r.getLastStepPixels().toArray(), c.getLastStepPixels().toArray());
+    }
+
+    @Test
+    public void testMostRecentCheckpoint() throws Exception {
+        String path = new File(folder.getRoot(), "checkpoint").getPath();
+        CheckpointWriter w = new CheckpointWriter(path);
+        w.write(createCheckpoint(1440, 5));
+        w.write(createCheckpoint(2880, 8));
+        w.write(createCheckpoint(4320, 2));
+        assertEquals("Step", MissionCheckpoint.read(path).getStep(), 4320);
+
+        w.clear();
+        assertNull("No checkpoint after clear", MissionCheckpoint.read(path));
+    }
+
+    @Test
+    public void testResumeWriter() throws Exception {
+        // A writer for a resumed run first overwrites the older file and keeps the checkpoint it resumed from
+        String path = new File(folder.getRoot(), "checkpoint").getPath();
+        CheckpointWriter w = new CheckpointWriter(path);
+        w.write(createCheckpoint(1440, 5));
+        w.write(createCheckpoint(2880, 8));
+
+        CheckpointWriter resumed = new CheckpointWriter(path);
+        resumed.resume(MissionCheckpoint.read(path));
+        resumed.write(createCheckpoint(4320, 2));
+        assertEquals("Step", MissionCheckpoint.read(path).getStep(), 4320);
+        new File(path + ".0").delete();
+        assertEquals("Resumed from", MissionCheckpoint.read(path).getStep(), 2880);
+    }
+
+    private static class RecordingSink implements FrameSink {
+        // Remembers the numbers of the written frames; a slow sink lets frames queue up in the pipeline
+        List<Integer> frames = new ArrayList<>();
+        int delay;
+
+        RecordingSink(int delay) {
+            this.delay = delay;
+        }
+
+        public byte[] encode(BufferedImage img) {
+            return new byte[0];
+        }
+
+        public void write(byte[] data, int frameNumber) throws IOException {
+            try {
+                Thread.sleep(delay);
+            }
+            catch(InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized(this) {
+                frames.add(frameNumber);
+            }
+        }
+
+        public synchronized int size() {
+            return frames.size();
+        }
+
+        public void close() {
+        }
+    }
+
+    private NSLStepHandler createHandler(String name, RecordingSink sink) throws Exception {
+        NSLStepHandler handler = new NSLStepHandler(Math.toRadians(45.0), folder.getRoot().getPath(), false, new AttitudeBuffer(60));
+        handler.enableAsyncRendering(2, 4);
+        handler.setFrameSink(sink);
+        handler.enableCheckpoints(new File(folder.getRoot(), name).getPath(), 20);
+        handler.reset();
+        return handler;
+    }
+
+    private void integrate(FixedStepHandler handler, double t0, double[] y, double t1) {
+        // Same integrator settings as NominalScanningLaw
+        DormandPrince853Integrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        integrator.addStepHandler(new StepNormalizer(1.0/(24*60), handler));
+        integrator.integrate(new NSLIntegrator(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400), t0, y, t1, y);
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        // A run that stops after its last checkpoint and is resumed from it ends with the same counts, frames and attitude
+        // file as an uninterrupted run, up to the differences of the restarted integrator
+        double start = 14*365.25;
+        double end = start + 50.0/(24*60);
+        final String interruptedPath = new File(folder.getRoot(), "interrupted").getPath();
+        String fullAttitude = new File(folder.getRoot(), "full.bin").getPath();
+        String resumedAttitude = new File(folder.getRoot(), "resumed.bin").getPath();
+
+        RecordingSink fullSink = new RecordingSink(0);
+        NSLStepHandler full = createHandler("full", fullSink);
+        full.enableAttitudeOutput(fullAttitude, 100);
+        integrate(full, start, new double[] {Math.PI/2.0, Math.PI/2.0}, end);
+
+        // Stops 30 minutes into the mission, 10 steps after the checkpoint at step 20; at every checkpoint
+        // all frames before its frame number have been written
+        final RecordingSink interruptedSink = new RecordingSink(1000);
+        final NSLStepHandler interrupted = createHandler("interrupted", interruptedSink);
+        interrupted.enableAttitudeOutput(resumedAttitude, 100);
+        final int[] steps = {0};
+        integrate(new FixedStepHandler() {
+            public void init(double t0, double[] y0, double t) {
+            }
+
+            public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
+                interrupted.handleStep(t, y, yDot, isLast);
+                steps[0] += 1;
+                if(steps[0] % 20 == 0) {
+                    try {
+                        int frameNumber = MissionCheckpoint.read(interruptedPath).getFrameNumber();
+                        assertTrue("Frames written before checkpoint", interruptedSink.size() >= frameNumber);
+                    }
+                    catch(IOException e) {
+                        fail("Error: " + e);
+                    }
+                }
+            }
+        }, start, new double[] {Math.PI/2.0, Math.PI/2.0}, start + 30.0/(24*60));
+
+        MissionCheckpoint checkpoint = MissionCheckpoint.read(interruptedPath);
+        assertEquals("Checkpoint step", checkpoint.getStep(), 20);
+        RecordingSink resumedSink = new RecordingSink(0);
+        NSLStepHandler resumed = createHandler("interrupted", resumedSink);
+        resumed.restore(checkpoint);
+        assertEquals("Checkpoint kept on resume", MissionCheckpoint.read(interruptedPath).getStep(), 20);
+        resumed.resumeAttitudeOutput(resumedAttitude, checkpoint.getStep());
+        integrate(resumed, checkpoint.getT(), new double[] {checkpoint.getNu(), checkpoint.getOmega()}, end);
+
+        // Frames: the interrupted run wrote all frames before the checkpoint, the resumed run continues from there
+        List<Integer> frames = new ArrayList<>();
+        for(int n: interruptedSink.frames) {
+            if(n < checkpoint.getFrameNumber()) {
+                frames.add(n);
+            }
+        }
+        frames.addAll(resumedSink.frames);
+        assertEquals("Frames", frames, fullSink.frames);
+
+        // Counts: the restarted integrator gives nu and omega within ~1e-9 rad of the uninterrupted run, which moves
+        // the FoV edges by far less than a pixel; allow a few pixels on the edges to differ by one transit
+        CountsStore expected = full.getCountsStore();
+        CountsStore actual = resumed.getCountsStore();
+        long total = 0;
+        int differences = 0;
+        for(long i = 0; i < expected.size(); i++) {
+            total += expected.get(i);
+            int diff = Math.abs(actual.get(i) - expected.get(i));
+            assertTrue("Count " + i, diff <= 1);
+            differences += diff;
+        }
+        assertTrue("Some pixels are covered", total > 0);
+        assertTrue("Differing pixels " + differences + " of " + total + " transits", differences <= total / 10000);
+
+        // Attitude file: rows after the checkpoint continue the interrupted file
+        try(AttitudeFileReader f = new AttitudeFileReader(fullAttitude); AttitudeFileReader r = new AttitudeFileReader(resumedAttitude)) {
+            assertEquals("Rows", r.getRows(), f.getRows());
+            for(int i = 0; i < f.getRows(); i++) {
+                assertEquals("t " + i, r.getT(i), f.getT(i), 1e-9);
+                assertEquals("Nu " + i, r.getNu(i), f.getNu(i), 1e-9);
+                assertEquals("Omega " + i, r.getOmega(i), f.getOmega(i), 1e-9);
+            }
+        }
+    }
+}
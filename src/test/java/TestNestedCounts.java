@@ -0,0 +1,98 @@
+import java.util.Random;
+
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import healpix.essentials.Scheme;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestNestedCounts {
+    @Test
+    public void testPermutation() throws Exception {
+        int nside = 16;
+        HealPixWrapper ring = new HealPixWrapper(nside, Scheme.RING);
+        HealPixWrapper nested = new HealPixWrapper(nside, Scheme.NESTED);
+        int[] nestToRing = NestedCounts.getNestToRing(nside);
+        for(int i = 0; i < nestToRing.length; i++) {
+            // The same direction falls in RING pixel nestToRing[i] and NESTED pixel i
+            SphericalCoordinates sc = nested.pix2ang(i);
+            assertEquals("NESTED to RING", ring.ang2pix(sc), (long)nestToRing[i]);
+            assertEquals("RING to NESTED", ring.ring2nest(nestToRing[i]), (long)i);
+        }
+
+        int[] ringCounts = new int[nestToRing.length];
+        Random random = new Random(1);
+        for(int i = 0; i < ringCounts.length; i++) {
+            ringCounts[i] = random.nextInt(100);
+        }
+        assertArrayEquals("Round trip", NestedCounts.fromRing(nside, ringCounts).toRing(), ringCounts);
+    }
+
+    @Test
+    public void testDowngrade() throws Exception {
+        int nside = 32;
+        int[] counts = new int[12 * nside * nside];
+        Random random = new Random(2);
+        long total = 0;
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] = random.nextInt(100);
+            total += counts[i];
+        }
+        NestedCounts fine = new NestedCounts(nside, counts);
+
+        for(int coarseNside = nside; coarseNside >= 1; coarseNside /= 2) {
+            int k = NestedCounts.getLevels(nside, coarseNside);
+            int[] coarse = fine.downgrade(coarseNside).getCounts();
+            assertEquals("Number of pixels", coarse.length, 12 * coarseNside * coarseNside);
+
+            // Every fine pixel lies in the coarse pixel obtained by dropping 2k bits
+            HealPixWrapper fineBase = new HealPixWrapper(nside, Scheme.NESTED);
+            HealPixWrapper coarseBase = new HealPixWrapper(coarseNside, Scheme.NESTED);
+            long sum = 0;
+            int[] expected = new int[coarse.length];
+            for(int i = 0; i < counts.length; i++) {
+                assertEquals("Parent", coarseBase.ang2pix(fineBase.pix2ang(i)), (long)(i >> (2 * k)));
+                expected[i >> (2 * k)] += counts[i];
+            }
+            for(int c: coarse) {
+                sum += c;
+            }
+            assertArrayEquals("Sums", coarse, expected);
+            assertEquals("Total", sum, total);
+        }
+
+        int[] average = fine.downgradeAverage(nside / 4).getCounts();
+        int[] sums = fine.downgrade(nside / 4).getCounts();
+        for(int i = 0; i < average.length; i++) {
+            assertEquals("Average", average[i], Math.round(sums[i] / 16.0));
+        }
+    }
+
+    @Test
+    public void testDisplayCounts() throws Exception {
+        // A RING mapper drawn at a coarser nside shows the same counts as the NESTED downgrade of its counts,
+        // also after more transits were counted
+        int nside = 32;
+        HealPixDensityMapper h = new HealPixDensityMapper(800, 400, 600, 300, new HammerProjection(0, true), nside, "/tmp");
+        h.setDisplayNside(8);
+        AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        for(int i = 0; i < 400; i++) {
+            SphericalCoordinates[] scs = a.calculateDirections(0.01 * i / 400, Math.PI/2, i * 0.05);
+            h.nextStep(i / 1440.0, scs[0], scs[1]);
+            Vector3D[][] fovs = a.calculateFoVs();
+            h.addRectangularArea(fovs[0]);
+            h.addRectangularArea(fovs[1]);
+            if(i % 200 == 199) {
+                int[] expected = NestedCounts.fromRing(nside, h.getCounts()).downgradeAverage(8).getCounts();
+                assertArrayEquals("Display counts " + i, h.snapshot(i, null).getCounts(), expected);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNside() {
+        new NestedCounts(32, new int[12 * 32 * 32]).downgrade(12);
+    }
+}
@@ -0,0 +1,82 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.FixedStepHandler;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestParallelRendering {
+    private static int[] getData(BufferedImage img) {
+        return ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+    }
+
+    private static HealPixDensityMapper createMapper(int displayNside, boolean incremental, ForkJoinPool pool) throws Exception {
+        HealPixDensityMapper h = new HealPixDensityMapper(1920, 1080, 1600, 800, new HammerProjection(0, true), 256, "/tmp");
+        if(displayNside != 256) {
+            h.setDisplayNside(displayNside);
+        }
+        h.setIncrementalRendering(incremental);
+        h.setParallelRendering(pool);
+        return h;
+    }
+
+    @Test
+    public void testMatchesSerialRendering() throws Exception {
+        // Frames colored in row bands on a pool are pixel-identical to frames colored on the calling thread, when
+        // drawn at the nside of the map, at a coarser display nside (statistics split over the pool as well) and
+        // incrementally (full redraws on the pool)
+        ForkJoinPool pool = new ForkJoinPool(4);
+        final HealPixDensityMapper[] serial = {createMapper(256, false, null), createMapper(128, false, null), createMapper(256, true, null)};
+        final HealPixDensityMapper[] parallel = {createMapper(256, false, pool), createMapper(128, false, pool), createMapper(256, true, pool)};
+        final AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        final Sun sun = new Sun();
+        final int[] frames = new int[1];
+
+        FixedStepHandler handler = new FixedStepHandler() {
+            private int step = 0;
+
+            public void init(double t0, double[] y0, double t) {
+            }
+
+            public void handleStep(double t, double[] y, double[] yDot, boolean isLast) {
+                SphericalCoordinates[] scs = a.calculateDirections(sun.solarLongitude(t), y[0], y[1]);
+                Vector3D[][] fovs = a.calculateFoVs();
+                for(int i = 0; i < serial.length; i++) {
+                    for(HealPixDensityMapper h: new HealPixDensityMapper[] {serial[i], parallel[i]}) {
+                        h.nextStep(t, scs[0], scs[1]);
+                        h.addRectangularArea(fovs[0]);
+                        h.addRectangularArea(fovs[1]);
+                    }
+                }
+                if(step % 10 == 0) {
+                    try {
+                        for(int i = 0; i < serial.length; i++) {
+                            assertArrayEquals("Frame " + step + " of mapper " + i, getData(parallel[i].renderFrame(parallel[i].snapshot(step, null))),
+                                    getData(serial[i].renderFrame(serial[i].snapshot(step, null))));
+                        }
+                        frames[0] += 1;
+                    }
+                    catch(Exception e) {
+                        fail("Error: " + e);
+                    }
+                }
+                step += 1;
+            }
+        };
+
+        double startTime = 14*365.25;
+        double[] y = new double[] {Math.PI/2.0, Math.PI/2.0};
+        DormandPrince853Integrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        integrator.addStepHandler(new StepNormalizer(1.0/(24*60), handler));
+        integrator.integrate(new NSLIntegrator(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400), startTime, y, startTime + 0.5/24, y);
+        pool.shutdown();
+        assertTrue("Frames", frames[0] >= 3);
+    }
+}
@@ -0,0 +1,52 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class TestParameterSweep {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCoverageMetrics() {
+        CoverageMetrics m = CoverageMetrics.fromCounts(new int[] {0, 1, 1, 2, 5, 5, 5, 10});
+        assertEquals("Min", m.getMin(), 0);
+        assertEquals("Max", m.getMax(), 10);
+        assertEquals("Mean", m.getMean(), 29.0/8, 1e-12);
+        assertEquals("Median", m.getPercentile(50), 2);
+        assertEquals("Percentile 75", m.getPercentile(75), 5);
+        assertEquals("Percentile 100", m.getPercentile(100), 10);
+        assertEquals("Fraction below 5", m.getFractionBelow(5), 0.5, 1e-12);
+        assertEquals("Fraction below 100", m.getFractionBelow(100), 1.0, 1e-12);
+    }
+
+    @Test
+    public void testSweepMatchesSegmentedMission() throws Exception {
+        double startTime = 14*365.25;
+        double spinRate = Math.toRadians(60.0/3600.0) * 86400;
+        ParameterSweep sweep = new ParameterSweep(0.25, 1.0/(24*60), 16, new int[] {1, 5});
+        sweep.addGrid(new double[] {4.223, 5.0}, new double[] {Math.toRadians(45.0)}, new double[] {spinRate},
+                new double[] {Math.PI/2.0}, new double[] {Math.PI/2.0, 0.0}, new double[] {startTime});
+        assertEquals("Number of configurations", sweep.getConfigurations().size(), 4);
+
+        List<CoverageMetrics> results = sweep.run(3);
+        int[] reference = new SegmentedMission(4.223, Math.toRadians(45.0), spinRate, startTime, startTime + 0.25,
+                1.0/(24*60), new double[] {Math.PI/2.0, Math.PI/2.0}, 16).run(1, 1);
+        CoverageMetrics expected = CoverageMetrics.fromCounts(reference);
+        assertEquals("Max", results.get(0).getMax(), expected.getMax());
+        assertEquals("Mean", results.get(0).getMean(), expected.getMean(), 0);
+        assertEquals("Fraction below 5", results.get(0).getFractionBelow(5), expected.getFractionBelow(5), 0);
+
+        String path = folder.getRoot().getPath() + "/sweep.csv";
+        sweep.writeCsv(results, path);
+        List<String> lines = Files.readAllLines(new java.io.File(path).toPath(), StandardCharsets.UTF_8);
+        assertEquals("Rows", lines.size(), 5);
+        assertEquals("Columns", lines.get(1).split(",").length, lines.get(0).split(",").length);
+    }
+}
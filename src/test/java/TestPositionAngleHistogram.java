@@ -0,0 +1,83 @@
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestPositionAngleHistogram {
+    @Test
+    public void testPositionAngle() {
+        // On the equator at longitude 0, scanning along the equator goes east, scanning along the meridian goes north
+        assertEquals("East", PositionAngleHistogram.positionAngle(1, 0, 0, new double[] {0, 0, 1}), Math.PI/2, 1e-12);
+        assertEquals("West is the same direction", PositionAngleHistogram.positionAngle(1, 0, 0, new double[] {0, 0, -1}), Math.PI/2, 1e-12);
+        assertEquals("North", PositionAngleHistogram.positionAngle(1, 0, 0, new double[] {0, -1, 0}), 0.0, 1e-12);
+        assertEquals("South is the same direction", PositionAngleHistogram.positionAngle(1, 0, 0, new double[] {0, 1, 0}), 0.0, 1e-12);
+        // At longitude 90 and latitude 45, with the spin axis along x the scan circle is the meridian: north
+        double c = Math.sqrt(0.5);
+        assertEquals("Meridian", PositionAngleHistogram.positionAngle(0, c, c, new double[] {1, 0, 0}), 0.0, 1e-12);
+        // Spin axis tilted by 30 degrees from the pole towards longitude 180: on the equator at longitude 90 the
+        // scan direction is 30 degrees from east towards south, i.e. position angle 120 degrees
+        double[] axis = {-Math.sin(Math.toRadians(30)), 0, Math.cos(Math.toRadians(30))};
+        assertEquals("Tilted", PositionAngleHistogram.positionAngle(0, 1, 0, axis), Math.toRadians(120), 1e-12);
+
+        assertEquals("First bin", PositionAngleHistogram.getBin(0.0), 0);
+        assertEquals("Bin of 95 degrees", PositionAngleHistogram.getBin(Math.toRadians(95)), 9);
+        assertEquals("Last bin", PositionAngleHistogram.getBin(Math.PI), PositionAngleHistogram.BINS - 1);
+    }
+
+    @Test
+    public void testStatistics() {
+        PositionAngleHistogram h = new PositionAngleHistogram(4);
+        // Pixel 0: all scans parallel; pixel 1: two perpendicular directions equally often; pixel 2: nothing;
+        // pixel 3: directions on both sides of 0, which is the same as 180 degrees
+        for(int i = 0; i < 5; i++) {
+            h.add(0, Math.toRadians(42));
+            h.add(1, Math.toRadians(15));
+            h.add(1, Math.toRadians(105));
+            h.add(3, Math.toRadians(5));
+            h.add(3, Math.toRadians(175));
+        }
+        h.add(1, Math.toRadians(15));
+        h.add(1, Math.toRadians(105));
+
+        assertEquals("Parallel length", h.getMeanResultantLength(0), 1.0, 1e-12);
+        assertEquals("Parallel angle", h.getDominantAngle(0), Math.toRadians(45), 1e-12);
+        assertEquals("Perpendicular length", h.getMeanResultantLength(1), 0.0, 1e-12);
+        assertEquals("Empty length", h.getMeanResultantLength(2), 0.0, 0.0);
+        assertTrue("Empty angle", Double.isNaN(h.getDominantAngle(2)));
+        assertEquals("Axial length", h.getMeanResultantLength(3), Math.cos(Math.toRadians(10)), 1e-12);
+        double angle = h.getDominantAngle(3);
+        assertTrue("Axial angle", angle < 1e-12 || angle > Math.PI - 1e-12);
+
+        assertArrayEquals("Histogram", h.getHistogram(1), new int[] {0, 6, 0, 0, 0, 0, 0, 0, 0, 0, 6, 0, 0, 0, 0, 0, 0, 0});
+        assertArrayEquals("Lengths", h.getMeanResultantLengths(), new double[] {1.0, 0.0, 0.0, Math.cos(Math.toRadians(10))}, 1e-12);
+    }
+
+    @Test
+    public void testMapper() throws Exception {
+        // Every counted transit is also counted in exactly one bin
+        HealPixDensityMapper h = new HealPixDensityMapper(32);
+        h.enablePositionAngles();
+        AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        for(int i = 0; i < 300; i++) {
+            SphericalCoordinates[] scs = a.calculateDirections(0.01 * i / 300, Math.PI/2, i * 0.05);
+            h.nextStep(i / 1440.0, scs[0], scs[1]);
+            Vector3D[][] fovs = a.calculateFoVs();
+            h.addRectangularArea(fovs[0]);
+            h.addRectangularArea(fovs[1]);
+        }
+        int[] counts = h.getCounts();
+        PositionAngleHistogram angles = h.getPositionAngles();
+        long total = 0;
+        for(int p = 0; p < counts.length; p++) {
+            int sum = 0;
+            for(int b = 0; b < PositionAngleHistogram.BINS; b++) {
+                sum += angles.getCount(p, b);
+            }
+            assertEquals("Pixel " + p, sum, counts[p]);
+            total += sum;
+        }
+        assertTrue("Transits", total > 0);
+    }
+}
@@ -0,0 +1,118 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestProjections {
+    private static Projection[] getProjections() {
+        return new Projection[] {
+                new MollweideProjection(0), new MollweideProjection(30, true),
+                new AitoffProjection(0), new AitoffProjection(-60, true),
+                new LambertPolarProjection(0), new LambertPolarProjection(45, true),
+                new OrthographicProjection(0, 0), new OrthographicProjection(30, 20, true)
+        };
+    }
+
+    @Test
+    public void testRoundTrip() {
+        // Inverse projecting a grid over the range and projecting the result again gives the grid back
+        for(Projection p: getProjections()) {
+            String name = p.getClass().getName();
+            double[] xRange = p.getXRange();
+            double[] yRange = p.getYRange();
+            int inside = 0;
+            for(int j = 0; j < 40; j++) {
+                for(int i = 0; i < 80; i++) {
+                    double x = xRange[0] + (xRange[1] - xRange[0]) * (i + 0.5) / 80;
+                    double y = yRange[0] + (yRange[1] - yRange[0]) * (j + 0.5) / 40;
+                    double[] thetaPhi = p.inverseProjectThetaPhi(x, y);
+                    if(Double.isNaN(thetaPhi[0])) {
+                        continue;
+                    }
+                    inside += 1;
+                    assertTrue(name + " phi " + x + ", " + y, thetaPhi[1] >= 0 && thetaPhi[1] <= Math.PI);
+                    assertArrayEquals(name + " round trip " + x + ", " + y, p.projectThetaPhi(thetaPhi[0], thetaPhi[1]),
+                            new double[] {x, y}, 1e-10);
+                }
+            }
+            assertTrue(name + " points inside", inside > 1000);
+        }
+    }
+
+    @Test
+    public void testLongLat() {
+        // The center of every projection and an arbitrary visible point
+        for(Projection p: getProjections()) {
+            String name = p.getClass().getName();
+            double[] s = p instanceof OrthographicProjection ? new double[] {((OrthographicProjection)p).getCenterLongitude() + 20.0, 35.0}
+                    : new double[] {34.5, 74.1};
+            double[] d = p.projectLongLat(s[0], s[1]);
+            assertArrayEquals(name + " inverse projection", p.inverseProjectLongLat(d[0], d[1]), s, 1e-9);
+        }
+        assertArrayEquals("Mollweide center", new MollweideProjection(0).projectLongLat(0, 0), new double[] {0, 0}, 1e-12);
+        assertArrayEquals("Mollweide north pole", new MollweideProjection(0).projectLongLat(0, 90), new double[] {0, Math.sqrt(2)}, 1e-12);
+        assertArrayEquals("Mollweide edge", new MollweideProjection(0).projectLongLat(-180, 0), new double[] {-2 * Math.sqrt(2), 0}, 1e-12);
+        assertArrayEquals("Aitoff edge", new AitoffProjection(0).projectLongLat(180, 0), new double[] {Math.PI, 0}, 1e-12);
+        assertArrayEquals("Aitoff north pole", new AitoffProjection(0).projectLongLat(0, 90), new double[] {0, Math.PI/2}, 1e-12);
+        assertArrayEquals("Lambert north pole", new LambertPolarProjection(0).projectLongLat(0, 90), new double[] {-Math.sqrt(2), 0}, 1e-12);
+        assertArrayEquals("Lambert south pole", new LambertPolarProjection(0).projectLongLat(0, -90), new double[] {Math.sqrt(2), 0}, 1e-12);
+        // Both caps touch at the same point of the equator
+        assertArrayEquals("Lambert equator north", new LambertPolarProjection(0).projectLongLat(90, 1e-9), new double[] {0, 0}, 1e-8);
+        assertArrayEquals("Lambert equator south", new LambertPolarProjection(0).projectLongLat(90, -1e-9), new double[] {0, 0}, 1e-8);
+        assertArrayEquals("Orthographic center", new OrthographicProjection(30, 20).projectLongLat(30, 20), new double[] {0, 0}, 1e-12);
+    }
+
+    @Test
+    public void testOutside() {
+        double[] nan = new double[] {Double.NaN, Double.NaN};
+        for(Projection p: getProjections()) {
+            String name = p.getClass().getName();
+            assertArrayEquals(name + " corner", p.inverseProjectThetaPhi(p.getXRange()[0], p.getYRange()[0]), nan, 0.0);
+        }
+        // The far side of the globe is hidden
+        assertArrayEquals("Orthographic far side", new OrthographicProjection(30, 20).projectLongLat(210, -20), nan, 0.0);
+    }
+
+    @Test
+    public void testBatch() {
+        // The batch methods give exactly the single point results
+        for(Projection p: getProjections()) {
+            String name = p.getClass().getName();
+            int n = 300;
+            double[] x = new double[n];
+            double[] y = new double[n];
+            for(int i = 0; i < n; i++) {
+                x[i] = p.getXRange()[0] + (p.getXRange()[1] - p.getXRange()[0]) * i / (n - 1);
+                y[i] = p.getYRange()[0] + (p.getYRange()[1] - p.getYRange()[0]) * ((i * 37) % n) / (n - 1);
+            }
+            double[] theta = new double[n + 2];
+            double[] phi = new double[n + 2];
+            p.inverseProjectThetaPhi(x, y, 0, theta, phi, 2, n);
+            double[] px = new double[n];
+            double[] py = new double[n];
+            p.projectThetaPhi(theta, phi, 2, px, py, 0, n);
+            for(int i = 0; i < n; i++) {
+                double[] ref = p.inverseProjectThetaPhi(x[i], y[i]);
+                assertEquals(name + " batch theta " + i, theta[i + 2], ref[0], 0.0);
+                assertEquals(name + " batch phi " + i, phi[i + 2], ref[1], 0.0);
+                ref = p.projectThetaPhi(theta[i + 2], phi[i + 2]);
+                assertEquals(name + " batch x " + i, px[i], ref[0], 0.0);
+                assertEquals(name + " batch y " + i, py[i], ref[1], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testForName() {
+        assertTrue("Hammer", Projection.forName("hammer") instanceof HammerProjection);
+        assertTrue("Mollweide", Projection.forName("mollweide") instanceof MollweideProjection);
+        assertTrue("Aitoff", Projection.forName("aitoff") instanceof AitoffProjection);
+        assertTrue("Lambert", Projection.forName("lambert") instanceof LambertPolarProjection);
+        assertTrue("Orthographic", Projection.forName("orthographic") instanceof OrthographicProjection);
+        try {
+            Projection.forName("mercator");
+            fail("Unknown projection");
+        }
+        catch(IllegalArgumentException e) {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestRenderKernels {
+    @Test
+    public void testColorPixels() {
+        int white = (255<<16) | (255<<8) | 255;
+        int[] counts = {0, 1, 2, 3};
+        int[] lookup = {3, -1, 0, 2, 1, -1, 3};
+        int[] colors = {10, 11, 12, 13};
+        int[] data = new int[lookup.length];
+        new ScalarRenderKernels().colorPixels(counts, lookup, data, 1, 6, colors);
+        assertArrayEquals("Colors", data, new int[] {0, white, 10, 12, 11, white, 0});
+    }
+
+    @Test
+    public void testInverseHammer() {
+        // The kernels picked by create, scalar or Vector API, agree with the scalar kernel, including the points
+        // outside the ellipse; the length is not a multiple of any vector size, so the tail is covered as well
+        RenderKernels scalar = new ScalarRenderKernels();
+        RenderKernels kernels = RenderKernels.create();
+        double scale = Math.sqrt(2);
+        int n = 1003;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for(int i = 0; i < n; i++) {
+            x[i] = -2.2 * scale + 4.4 * scale * i / n;
+            y[i] = -1.1 * scale + 2.2 * scale * ((i * 389) % n) / n;
+        }
+        double[] theta = new double[n];
+        double[] phi = new double[n];
+        double[] refTheta = new double[n];
+        double[] refPhi = new double[n];
+        kernels.inverseHammer(scale, -1, 0.5, x, y, 0, theta, phi, 0, n);
+        scalar.inverseHammer(scale, -1, 0.5, x, y, 0, refTheta, refPhi, 0, n);
+        assertArrayEquals(kernels.getName() + " theta", theta, refTheta, 1e-12);
+        assertArrayEquals(kernels.getName() + " phi", phi, refPhi, 1e-12);
+        int outside = 0;
+        for(int i = 0; i < n; i++) {
+            assertEquals(kernels.getName() + " outside " + i, Double.isNaN(theta[i]), Double.isNaN(refTheta[i]));
+            if(Double.isNaN(theta[i])) {
+                outside += 1;
+            }
+        }
+        assertTrue("Points outside", outside > 0 && outside < n);
+    }
+}
@@ -0,0 +1,84 @@
+import java.awt.image.BufferedImage;
+
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator;
+import org.apache.commons.math3.ode.sampling.StepNormalizer;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class TestSegmentedMission {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SegmentedMission createMission() {
+        double startTime = 14*365.25;
+        return new SegmentedMission(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400,
+                startTime, startTime + 0.25, 1.0/(24*60), new double[] {Math.PI/2.0, Math.PI/2.0}, 64);
+    }
+
+    @Test
+    public void testSegmentsMatchSequentialRun() {
+        try {
+            int[] sequential = createMission().run(1, 1);
+            int[] segmented = createMission().run(7, 4);
+
+            int total = 0;
+            for(int c: sequential) {
+                total += c;
+            }
+            assertTrue("Some pixels are covered", total > 0);
+            assertArrayEquals("Counts", sequential, segmented);
+        }
+        catch(Exception e) {
+            fail("Error: " + e);
+        }
+    }
+
+    @Test
+    public void testSegmentsMatchStepHandler() throws Exception {
+        // Same counts as the sequential NSLStepHandler run that makes the movie, which uses nside 512,
+        // so that errors shared by all segment counts would show up
+        double startTime = 14*365.25;
+        double endTime = startTime + 40.0/(24*60);
+        double stepSize = 1.0/(24*60);
+        double[] y0 = {Math.PI/2.0, Math.PI/2.0};
+
+        NSLStepHandler handler = new NSLStepHandler(Math.toRadians(45.0), folder.getRoot().getPath(), false, new AttitudeBuffer(60));
+        handler.setFrameSink(new FrameSink() {
+            public byte[] encode(BufferedImage img) {
+                return new byte[0];
+            }
+
+            public void write(byte[] data, int frameNumber) {
+            }
+
+            public void close() {
+            }
+        });
+        double[] y = y0.clone();
+        DormandPrince853Integrator integrator = new DormandPrince853Integrator(1.0e-8, 1, 1.0e-10, 1.0e-10);
+        integrator.addStepHandler(new StepNormalizer(stepSize, handler));
+        integrator.integrate(new NSLIntegrator(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400), startTime, y, endTime, y);
+
+        SegmentedMission mission = new SegmentedMission(4.223, Math.toRadians(45.0), Math.toRadians(60.0/3600.0) * 86400,
+                startTime, endTime, stepSize, y0, 512);
+        int[] segmented = mission.run(7, 4);
+
+        CountsStore sequential = handler.getCountsStore();
+        assertEquals("Number of pixels", segmented.length, sequential.size());
+        int total = 0;
+        for(int i = 0; i < segmented.length; i++) {
+            assertEquals("Count " + i, segmented[i], sequential.get(i));
+            total += segmented[i];
+        }
+        assertTrue("Some pixels are covered", total > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSegments() throws Exception {
+        createMission().run(0, 1);
+    }
+}
@@ -0,0 +1,33 @@
+import java.awt.image.BufferedImage;
+
+import org.apache.commons.math3.geometry.euclidean.threed.SphericalCoordinates;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestStaticOverlay {
+    @Test
+    public void testOverlayIsReused() throws Exception {
+        // The grid, scale and ecliptic come from the cached overlay and must be identical in every frame,
+        // with the scale bar opaque on top of the map
+        HealPixDensityMapper h = new HealPixDensityMapper(1920, 1080, 1600, 800, new HammerProjection(0, true), 16, "/tmp");
+        AttitudeCalculator a = new AttitudeCalculator(Math.toRadians(45.0));
+        h.setEpsilon(a.getEpsilon());
+        SphericalCoordinates[] scs = a.calculateDirections(0.0, Math.PI/2, 0.0);
+        h.nextStep(0.0, scs[0], scs[1]);
+        BufferedImage first = h.renderFrame(h.snapshot(0, null));
+        scs = a.calculateDirections(0.5, Math.PI/2, 1.0);
+        h.nextStep(1.0, scs[0], scs[1]);
+        BufferedImage second = h.renderFrame(h.snapshot(1, null));
+
+        // Middle of the scale bar, which starts at x = 2*75 + 1600 + 100 and spans the map height
+        int col = ColorMap.getJet(256).getColor(127);
+        assertEquals("Scale first", first.getRGB(1862, 540) & 0xFFFFFF, col & 0xFFFFFF);
+        assertEquals("Scale second", second.getRGB(1862, 540) & 0xFFFFFF, col & 0xFFFFFF);
+        // Bottom of the map frame, part of the coordinate grid
+        for(int x = 200; x < 1700; x += 50) {
+            assertEquals("Grid " + x, second.getRGB(x, 539), first.getRGB(x, 539));
+        }
+    }
+}
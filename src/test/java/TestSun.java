@@ -29,4 +29,63 @@ public class TestSun {
         assertEquals("Average distance Sun-Earth", avgDistance, 1.0, 1e-3);
         assertEquals("Average derivative solar motion", Math.toDegrees(avgDerivative), 360/365.25, 1e-4);
     }
+
+    @Test
+    public void testFastPathMatchesClosedForm() {
+        double[] ts = new double[1000];
+        for(int i=0; i<ts.length; i++) {
+            ts[i] = 14*365.25 + 5*365.25 * i/(ts.length-1);
+        }
+        double[] longitudes = new double[ts.length];
+        double[] rates = new double[ts.length];
+        s.solarLongitude(ts, longitudes);
+        s.solarLongitudeRate(ts, rates);
+
+        for(int i=0; i<ts.length; i++) {
+            double[] res = s.apparentLongitude(ts[i]);
+            assertEquals("Solar longitude", s.solarLongitude(ts[i]), res[1], 0);
+            assertEquals("Derivative solar motion", s.solarLongitudeRate(ts[i]), res[2], 0);
+            assertEquals("Batch solar longitude", longitudes[i], res[1], 0);
+            assertEquals("Batch derivative solar motion", rates[i], res[2], 0);
+        }
+    }
+
+    @Test
+    public void testTable() {
+        // Interpolation error over the mission span, sampled off the table nodes
+        double start = 14*365.25;
+        double end = start + 5*365.25;
+        Sun table = new Sun();
+        table.enableTable(start, end, 0.25);
+
+        double maxError = 0;
+        for(double t = start; t < end; t += 0.0123) {
+            double diff = table.solarLongitude(t) - s.solarLongitude(t);
+            diff = Math.abs(diff - 2 * Math.PI * Math.rint(diff / (2 * Math.PI)));
+            maxError = Math.max(maxError, diff);
+            assertEquals("Derivative solar motion", table.solarLongitudeRate(t), s.solarLongitudeRate(t), 1e-12);
+        }
+        assertTrue("Solar longitude error " + maxError, maxError < 1e-12);
+
+        // Outside the table the closed form is used
+        assertEquals("Before the table", table.solarLongitude(start - 10), s.solarLongitude(start - 10), 0);
+        assertEquals("After the table", table.solarLongitudeRate(end + 10), s.solarLongitudeRate(end + 10), 0);
+    }
+
+    @Test
+    public void testTableEnd() {
+        // The last time inside the table interpolates in the last interval; with a spacing that is not a power of two,
+        // (t - start)/spacing rounds up to the index of the last node here
+        double[][] tables = {{14*365.25, 19*365.25, 0.25}, {0, 3.33, 0.2}};
+        for(double[] range: tables) {
+            Sun table = new Sun();
+            table.enableTable(range[0], range[1], range[2]);
+            double end = range[0] + Math.ceil((range[1] - range[0]) / range[2]) * range[2];
+            double t = end - Math.ulp(end);
+            assertEquals("Derivative solar motion", table.solarLongitudeRate(t), s.solarLongitudeRate(t), 1e-12);
+            double diff = table.solarLongitude(t) - s.solarLongitude(t);
+            diff = Math.abs(diff - 2 * Math.PI * Math.rint(diff / (2 * Math.PI)));
+            assertTrue("Solar longitude error " + diff, diff < 1e-12);
+        }
+    }
 }
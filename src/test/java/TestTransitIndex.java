@@ -0,0 +1,47 @@
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class TestTransitIndex {
+    @Test
+    public void testRoundTrip() {
+        // Several pixels interleaved, with deltas of very different sizes so that varints cross chunk boundaries
+        int npix = 5;
+        int n = 200;
+        long[][] expected = new long[npix][n];
+        Random random = new Random(42);
+        TransitIndex index = new TransitIndex(npix);
+        for(int i = 0; i < n; i++) {
+            for(int p = 0; p < npix; p++) {
+                long previous = i == 0 ? 0 : expected[p][i - 1];
+                long delta = random.nextInt(4) == 0 ? (long)(random.nextDouble() * 1e14) : random.nextInt(1000);
+                expected[p][i] = previous + delta;
+                index.add(p, expected[p][i]);
+            }
+        }
+
+        for(int p = 0; p < npix; p++) {
+            assertEquals("Number of transits", index.getNumberOfTransits(p), n);
+            assertArrayEquals("Transit times", index.getTransitTimes(p), expected[p]);
+        }
+    }
+
+    @Test
+    public void testResolution() {
+        // One minute resolution: times are rounded to whole minutes
+        TransitIndex index = new TransitIndex(1, 60000000L);
+        index.add(0, 60000000L * 10 + 29000000L);
+        index.add(0, 60000000L * 20 + 31000000L);
+        assertArrayEquals("Rounded times", index.getTransitTimes(0), new long[] {60000000L * 10, 60000000L * 21});
+        assertEquals("Empty pixel", new TransitIndex(2).getTransitTimes(1).length, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrder() {
+        TransitIndex index = new TransitIndex(1);
+        index.add(0, 100);
+        index.add(0, 50);
+    }
+}
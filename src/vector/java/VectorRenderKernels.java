@@ -0,0 +1,41 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+public class VectorRenderKernels extends ScalarRenderKernels {
+    // Render kernels on the JDK Vector API (incubator module jdk.incubator.vector, JDK 16 or later)
+    // Only compiled with gradle -PvectorApi; RenderKernels.create picks them up when the module is available
+    // The loop processes as many points as fit the preferred vector size and leaves the rest to the scalar kernel
+    // The lanewise atan2 and asin may differ from Math.atan2 and Math.asin in the last bit
+    // colorPixels is inherited: it is two dependent table lookups per pixel, and on JDK 17 the vector gathers through
+    // an index array were several times slower than the scalar loop
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    public void inverseHammer(double scale, int longitudeSign, double centerTheta,
+                              double[] x, double[] y, int inOffset, double[] theta, double[] phi, int outOffset, int length) {
+        int upper = DOUBLES.loopBound(length);
+        int i = 0;
+        for(; i < upper; i += DOUBLES.length()) {
+            DoubleVector xv = DoubleVector.fromArray(DOUBLES, x, inOffset + i);
+            DoubleVector yv = DoubleVector.fromArray(DOUBLES, y, inOffset + i);
+            DoubleVector xx = xv.mul(xv).div(4.0 * scale * scale);
+            DoubleVector yy = yv.mul(yv).div(scale * scale);
+            VectorMask<Double> outside = xx.add(yy).compare(VectorOperators.GT, 1.0);
+            DoubleVector z = DoubleVector.broadcast(DOUBLES, 1.0).sub(xx.mul(0.5)).sub(yy.mul(0.5)).max(0.0).sqrt();
+
+            DoubleVector numerator = z.mul(longitudeSign).mul(xv);
+            DoubleVector denominator = z.mul(2.0).mul(z).sub(1.0).mul(2.0);
+            numerator.lanewise(VectorOperators.ATAN2, denominator).mul(2.0).add(centerTheta)
+                    .blend(Double.NaN, outside).intoArray(theta, outOffset + i);
+            DoubleVector.broadcast(DOUBLES, 0.5 * Math.PI).sub(z.mul(yv).lanewise(VectorOperators.ASIN))
+                    .blend(Double.NaN, outside).intoArray(phi, outOffset + i);
+        }
+        super.inverseHammer(scale, longitudeSign, centerTheta, x, y, inOffset + i, theta, phi, outOffset + i, length - i);
+    }
+
+    public String getName() {
+        return "vector " + DOUBLES.vectorBitSize() + " bit";
+    }
+}